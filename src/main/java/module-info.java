@@ -371,6 +371,11 @@ module net.hunterstrategy.jackson_config_tree {
      */
     requires static com.github.spotbugs.annotations;
 
+    /*
+     * Optional dependencies, only needed by the modules that use them.
+     */
+    requires static org.eclipse.jgit;
+
     /*
      * Jackson is exposed in the API, hence it should be transitive.
      */
@@ -391,4 +396,7 @@ module net.hunterstrategy.jackson_config_tree {
      * Public API packages.
      */
     exports net.hunterstrategy.beantree;
+    exports net.hunterstrategy.beantree.bundle;
+    exports net.hunterstrategy.beantree.fs;
+    exports net.hunterstrategy.beantree.git;
 }
@@ -0,0 +1,245 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.lang.annotation.Annotation;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.hunterstrategy.beantree.analysis.DeserializationContext;
+import net.hunterstrategy.beantree.analysis.Injector;
+import net.hunterstrategy.beantree.analysis.PhaseComparison;
+
+/**
+ * What building a tree of a given type will do, worked out from the types alone
+ * without reading any files: every bean type reachable from the root type, and
+ * for each type the annotations that will be processed, in the order they run.
+ *
+ * The text form of a plan is stable, so that plans can be compared across
+ * releases with an ordinary text diff.
+ */
+public final class AnalysisPlan {
+    private final Class<?> root;
+    private final Map<Class<?>, List<Step>> steps = new LinkedHashMap<>();
+
+    AnalysisPlan(Class<?> root, DeserializationContext context) {
+        this.root = root;
+        context.assertCanDeserialize(root, context);
+        walk(root, context);
+    }
+
+    private void walk(Class<?> type, DeserializationContext context) {
+        if (steps.containsKey(type)) {
+            return;
+        }
+        List<Step> typeSteps = new ArrayList<>();
+        steps.put(type, Collections.unmodifiableList(typeSteps));
+        for (Injector i : context.injectors(type)) {
+            Step step = new Step(type, i, context);
+            typeSteps.add(step);
+            if (step.beanType != null) {
+                walk(step.beanType, context);
+            }
+        }
+    }
+
+    public Class<?> root() {
+        return root;
+    }
+
+    /**
+     * Every bean type in the tree, starting with the root type, in the order
+     * they were reached.
+     */
+    public List<Class<?>> types() {
+        return List.copyOf(steps.keySet());
+    }
+
+    /**
+     * The steps taken after a bean of the given type is read from its file, or
+     * an empty list if the type is not part of this plan.
+     */
+    public List<Step> steps(Class<?> type) {
+        return steps.getOrDefault(type, Collections.emptyList());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        steps.forEach((type, typeSteps) -> {
+            sb.append(type.getName()).append('\n');
+            typeSteps.forEach(step -> sb.append("    ").append(step).append('\n'));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * A single annotation processed on a bean type.
+     */
+    public static final class Step {
+        private final Class<?> type;
+        private final String member;
+        private final Annotation annotation;
+        private final String phase;
+        private final int index;
+        private final int priority;
+        private final String location;
+        private final int depth;
+        private final String template;
+        private final Class<?> beanType;
+        private final Injector injector;
+
+        Step(Class<?> type, Injector i, DeserializationContext context) {
+            this.type = type;
+            this.member = i.name();
+            this.annotation = i.annotation();
+            this.phase = PhaseComparison.phaseOf(i).name();
+            this.index = i.index();
+            this.priority = i.priority();
+            this.location = i.processor().location(context, annotation, i);
+            this.depth = location == null ? 0 : i.processor().locationDepth(annotation, i, location);
+            this.template = i.processor().template(annotation, i);
+            this.beanType = location == null ? null : i.processor().getTargetDeserializationType(annotation, i);
+            this.injector = i;
+        }
+
+        /**
+         * The bean type this step is processed on.
+         */
+        public Class<?> type() {
+            return type;
+        }
+
+        /**
+         * The name of the annotated member.
+         */
+        public String member() {
+            return member;
+        }
+
+        public Annotation annotation() {
+            return annotation;
+        }
+
+        /**
+         * The processing phase: pre, main, or post.
+         */
+        public String phase() {
+            return phase;
+        }
+
+        /**
+         * The index of this step within its phase.
+         */
+        public int index() {
+            return index;
+        }
+
+        /**
+         * The priority of this step within its phase. Steps with higher
+         * priorities are processed first.
+         */
+        public int priority() {
+            return priority;
+        }
+
+        /**
+         * The file name or glob loaded by this step, relative to the directory of
+         * the file being processed, if it loads files.
+         */
+        public Optional<String> location() {
+            return Optional.ofNullable(location);
+        }
+
+        /**
+         * The name of the template this step declares or looks up, if any.
+         */
+        public Optional<String> template() {
+            return Optional.ofNullable(template);
+        }
+
+        /**
+         * How many directories deep the {@link #location()} is searched when it is
+         * a glob, where files in the directory of the file being processed are at
+         * depth 1; 0 if this step does not load files.
+         */
+        public int depth() {
+            return depth;
+        }
+
+        /**
+         * Whether a file this step found is loaded, given the filters that do not
+         * need to read the file, such as the include and exclude globs of a
+         * collection.
+         *
+         * @param dir the directory of the file being processed
+         * @param file a file matching this step's {@link #location()}
+         */
+        public boolean includes(Path dir, Path file) {
+            return injector.processor().includes(annotation, injector, dir, file);
+        }
+
+        /**
+         * The name of the collection entry loaded from a file this step found, if
+         * this step loads a collection.
+         *
+         * @param dir the directory of the file being processed
+         * @param file a file matching this step's {@link #location()}
+         */
+        public Optional<String> entryName(Path dir, Path file) {
+            return Optional.ofNullable(injector.processor().entryName(annotation, injector, dir, file));
+        }
+
+        /**
+         * The type of the beans loaded by this step, if it loads files.
+         */
+        public Optional<Class<?>> beanType() {
+            return Optional.ofNullable(beanType);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(
+                    "%s %d %s @%s",
+                    phase, index, member, annotation.annotationType().getSimpleName()));
+            if (priority != 0) {
+                sb.append(" priority=").append(priority);
+            }
+            if (location != null) {
+                sb.append(' ').append(location);
+            }
+            if (template != null) {
+                sb.append(" template=").append(template);
+            }
+            if (beanType != null) {
+                sb.append(" -> ").append(beanType.getName());
+            }
+            return sb.toString();
+        }
+    }
+}
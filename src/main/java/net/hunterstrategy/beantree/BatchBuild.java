@@ -0,0 +1,74 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+
+/**
+ * The results of {@link ConfigurationTreeBuilder#buildAll}: a tree for each
+ * root that was built, and the exception of each root that was not. Both are
+ * in the order the roots were given.
+ */
+public final class BatchBuild<T> {
+    private final Map<String, ConfigurationTree<T>> trees;
+    private final Map<String, BeanTreeException> failures;
+
+    BatchBuild(Map<String, ConfigurationTree<T>> trees, Map<String, BeanTreeException> failures) {
+        this.trees = Collections.unmodifiableMap(trees);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * The tree of each root that was built. With
+     * {@link ConfigurationTreeBuilder#collectErrors(boolean)}, trees may carry
+     * errors of their own.
+     */
+    public Map<String, ConfigurationTree<T>> trees() {
+        return trees;
+    }
+
+    /**
+     * The exception that stopped the build of each root that failed.
+     */
+    public Map<String, BeanTreeException> failures() {
+        return failures;
+    }
+
+    /**
+     * The root bean of the named tree, if it was built.
+     */
+    public Optional<T> root(String name) {
+        return Optional.ofNullable(trees.get(name)).map(ConfigurationTree::root);
+    }
+
+    /**
+     * Whether every root was built without errors.
+     */
+    public boolean isComplete() {
+        return failures.isEmpty()
+                && trees.values().stream().allMatch(t -> t.errors().isEmpty());
+    }
+}
@@ -62,4 +62,12 @@ public @interface Bean {
      * Influence the order in which this property is loaded.
      */
     int index() default 0;
+
+    /**
+     * Load this property ahead of properties with a lower priority, whatever
+     * their index. In a {@link ConfigurationTreeBuilder#buildProgressively progressive build},
+     * the properties of the root bean with a priority above zero are loaded
+     * before the tree is ready, and the rest after.
+     */
+    int priority() default 0;
 }
@@ -64,6 +64,44 @@ public @interface BeanCollection {
      */
     int index() default 0;
 
+    /**
+     * Load this property ahead of properties with a lower priority, whatever
+     * their index. In a {@link ConfigurationTreeBuilder#buildProgressively progressive build},
+     * the properties of the root bean with a priority above zero are loaded
+     * before the tree is ready, and the rest after.
+     */
+    int priority() default 0;
+
+    /**
+     * The maximum depth of files below the directory, for
+     * {@link Mapping#RECURSIVE}. Files directly in the directory are at depth 1.
+     */
+    int depth() default Integer.MAX_VALUE;
+
+    /**
+     * Globs that the names of entries must match one of to be loaded, such as
+     * {@code "prod-*"}. If empty, every entry is included.
+     */
+    String[] include() default {};
+
+    /**
+     * Globs of entry names to leave out, such as {@code "*.disabled"}. Entries
+     * are filtered by name as the directory is listed, before their files are opened.
+     */
+    String[] exclude() default {};
+
+    /**
+     * A filter that decides from the start of each entry's file whether to load
+     * it, such as {@link HeaderFilter.Enabled}. If unspecified, every entry is loaded.
+     */
+    Class<? extends HeaderFilter> filter() default HeaderFilter.class;
+
+    /**
+     * Indexes to build over the loaded entries, by a property of the entry type.
+     * Inject them into the same bean with {@link Indexed}.
+     */
+    Index[] indexes() default {};
+
     public static enum Mapping {
         /**
          * Maps every file inside one specifically named directory.
@@ -89,6 +127,18 @@ public @interface BeanCollection {
          *
          * In other words, scan for `*\/VALUE.json` (or configured extension).
          */
-        MULTI_DIRS;
+        MULTI_DIRS,
+        /**
+         * Maps every file in a directory and its subdirectories.
+         *
+         * Like CONF_DIR, but files in nested directories are included too, down
+         * to the configured depth. The mapped name is the path of the file
+         * relative to the directory, separated by '/' and without the extension,
+         * e.g. `a/b/c` for `VALUE/a/b/c.json`, or the result of the Nameable
+         * interface.
+         *
+         * In other words, scan for `VALUE/**.json` (or configured extension).
+         */
+        RECURSIVE;
     }
 }
@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A lookup index over the entries of a {@link BeanCollection}, as declared by an
+ * {@link Index}. Entries with the same key are kept in the order they were
+ * loaded in.
+ */
+public final class BeanIndex<T> {
+    private final String name;
+    private final String property;
+    private final boolean unique;
+    private final Map<Object, List<T>> entries;
+
+    /**
+     * @param declaration the index declaration
+     * @param entries the entries with each key, which must not be modified afterward
+     */
+    public BeanIndex(Index declaration, Map<Object, List<T>> entries) {
+        this.name = declaration.name();
+        this.property = declaration.property();
+        this.unique = declaration.unique();
+        this.entries = Collections.unmodifiableMap(entries);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    /**
+     * Find the entry with the given key, or the first one if the index is not unique.
+     */
+    public Optional<T> find(Object key) {
+        List<T> found = entries.get(key);
+        return found == null ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Find every entry with the given key.
+     */
+    public List<T> findAll(Object key) {
+        return entries.getOrDefault(key, Collections.emptyList());
+    }
+
+    public Set<Object> keys() {
+        return entries.keySet();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s%s, %d keys)", name, unique ? "unique " : "", property, entries.size());
+    }
+}
@@ -0,0 +1,59 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+
+/**
+ * Thrown when a build is stopped by its {@link Cancellation}. Unlike other
+ * failures, it is never collected by {@link ConfigurationTreeBuilder#collectErrors(boolean)}.
+ */
+public class BuildCancelledException extends BeanTreeException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Path file;
+    private final long filesLoaded;
+
+    public BuildCancelledException(String reason, long filesLoaded, Path file) {
+        super(new CancellationException(
+                String.format("Build %s after loading %d file(s), before %s", reason, filesLoaded, file)));
+        this.file = file;
+        this.filesLoaded = filesLoaded;
+    }
+
+    /**
+     * The file the build was about to load or list when it stopped.
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * The number of files loaded before the build stopped.
+     */
+    public long filesLoaded() {
+        return filesLoaded;
+    }
+}
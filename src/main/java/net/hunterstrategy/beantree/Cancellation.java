@@ -0,0 +1,104 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stops builds that take too long or are no longer wanted. A build checks its
+ * cancellation before each file it loads and each file it lists in a
+ * {@link BeanCollection}, and stops with a {@link BuildCancelledException} once
+ * it is cancelled or past its deadline. Checks are cooperative: a build blocked
+ * reading a file stops when the read returns.
+ *
+ * A cancellation also counts the files loaded by the builds that use it, so
+ * that it can be polled for progress while they run.
+ */
+public final class Cancellation {
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final LongAdder loaded = new LongAdder();
+    private volatile boolean cancelled;
+
+    /**
+     * A cancellation with no deadline, which only stops builds when {@link #cancel()} is called.
+     */
+    public Cancellation() {
+        this(0, false);
+    }
+
+    private Cancellation(long deadline, boolean hasDeadline) {
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+    }
+
+    /**
+     * A cancellation that stops builds once the timeout has passed, starting now.
+     */
+    public static Cancellation within(Duration timeout) {
+        return new Cancellation(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || isExpired();
+    }
+
+    private boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * The number of files loaded so far by the builds using this cancellation.
+     */
+    public long filesLoaded() {
+        return loaded.sum();
+    }
+
+    /**
+     * Stop the build if it has been cancelled or its deadline has passed.
+     *
+     * @param next the file the build is about to load or list
+     * @throws BuildCancelledException if the build should stop
+     */
+    public void check(Path next) {
+        if (cancelled) {
+            throw new BuildCancelledException("cancelled", filesLoaded(), next);
+        }
+        if (isExpired()) {
+            throw new BuildCancelledException("past its deadline", filesLoaded(), next);
+        }
+    }
+
+    /**
+     * Count a file loaded by a build.
+     */
+    public void loaded() {
+        loaded.increment();
+    }
+}
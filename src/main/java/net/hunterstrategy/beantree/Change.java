@@ -0,0 +1,98 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.core.JsonPointer;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.nio.file.Path;
+
+/**
+ * A difference between two versions of a configuration tree, reported at the
+ * granularity of a bean. The pointer locates the bean in the tree by member
+ * names and collection keys, e.g. `/plugins/foo`.
+ */
+public final class Change {
+    public static enum Kind {
+        /**
+         * The bean only exists in the current tree.
+         */
+        ADDED,
+        /**
+         * The bean only exists in the previous tree.
+         */
+        REMOVED,
+        /**
+         * The bean exists in both trees, but its own properties differ.
+         */
+        MODIFIED;
+    }
+
+    private final Kind kind;
+    private final JsonPointer pointer;
+    private final Path previousSource;
+    private final Path currentSource;
+
+    Change(Kind kind, JsonPointer pointer, Path previousSource, Path currentSource) {
+        this.kind = kind;
+        this.pointer = pointer;
+        this.previousSource = previousSource;
+        this.currentSource = currentSource;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "JsonPointer is immutable.")
+    public JsonPointer pointer() {
+        return pointer;
+    }
+
+    /**
+     * The file the bean was loaded from in the previous tree, or null if the
+     * bean was added (or is not backed by its own file).
+     */
+    public Path previousSource() {
+        return previousSource;
+    }
+
+    /**
+     * The file the bean was loaded from in the current tree, or null if the
+     * bean was removed (or is not backed by its own file).
+     */
+    public Path currentSource() {
+        return currentSource;
+    }
+
+    /**
+     * The most relevant source file: the current one, unless the bean was removed.
+     */
+    public Path source() {
+        return currentSource == null ? previousSource : currentSource;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s (%s)", kind, pointer, source());
+    }
+}
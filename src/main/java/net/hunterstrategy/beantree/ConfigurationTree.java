@@ -0,0 +1,128 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.hunterstrategy.beantree.analysis.BuildError;
+import net.hunterstrategy.beantree.analysis.Provenance;
+
+/**
+ * The result of building a configuration tree: the root bean, along with
+ * any information collected about the tree while it was built.
+ */
+public final class ConfigurationTree<T> {
+    private final T root;
+    private final Path source;
+    private final Map<Object, Provenance> provenance;
+    private final List<BuildError> errors;
+    private final StringPool strings;
+    private final long stringHits;
+    private final long stringBytesSaved;
+
+    /**
+     * @param pooled the pool the tree's strings were interned in, or null
+     * @param shared the pool to keep, if the tree's strings were interned in a
+     *     pool that outlives the build; a pool made for the build is dropped
+     */
+    ConfigurationTree(
+            T root,
+            Path source,
+            Map<Object, Provenance> provenance,
+            List<BuildError> errors,
+            StringPool pooled,
+            StringPool shared) {
+        this.root = root;
+        this.source = source;
+        this.provenance = provenance;
+        this.errors = List.copyOf(errors);
+        this.strings = shared;
+        this.stringHits = pooled == null ? 0 : pooled.hits();
+        this.stringBytesSaved = pooled == null ? 0 : pooled.bytesSaved();
+    }
+
+    public T root() {
+        return root;
+    }
+
+    public Path source() {
+        return source;
+    }
+
+    /**
+     * Whether provenance was recorded for this tree. See
+     * {@link ConfigurationTreeBuilder#recordProvenance(boolean)}.
+     */
+    public boolean hasProvenance() {
+        return !provenance.isEmpty();
+    }
+
+    /**
+     * The errors collected while building this tree, in the order the tree was
+     * walked. Always empty unless {@link ConfigurationTreeBuilder#collectErrors(boolean)}
+     * is enabled; otherwise the first error stops the build.
+     */
+    public List<BuildError> errors() {
+        return errors;
+    }
+
+    /**
+     * The pool the strings of this tree were interned in, if it was given to
+     * {@link ConfigurationTreeBuilder#stringPool(StringPool)}. A pool made for a
+     * single build by {@link ConfigurationTreeBuilder#deduplicateStrings(boolean)}
+     * is not kept, since it would hold an entry for every distinct string for
+     * as long as the tree.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "The pool is intended to be shared.")
+    public Optional<StringPool> stringPool() {
+        return Optional.ofNullable(strings);
+    }
+
+    /**
+     * The {@link StringPool#hits()} of the pool this tree was built with, as of
+     * the end of the build, or 0 if strings were not deduplicated. A pool shared
+     * with other builds counts their hits too.
+     */
+    public long stringHits() {
+        return stringHits;
+    }
+
+    /**
+     * The {@link StringPool#bytesSaved()} of the pool this tree was built with,
+     * as of the end of the build, or 0 if strings were not deduplicated. A pool
+     * shared with other builds counts their savings too.
+     */
+    public long stringBytesSaved() {
+        return stringBytesSaved;
+    }
+
+    /**
+     * Look up the provenance of any bean that was loaded from a file in this tree.
+     */
+    public Optional<Provenance> provenance(Object bean) {
+        return Optional.ofNullable(provenance.get(bean));
+    }
+}
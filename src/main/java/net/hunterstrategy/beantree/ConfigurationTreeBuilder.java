@@ -26,24 +26,60 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
 import net.hunterstrategy.beantree.analysis.ConfigAnalyzerCache;
 import net.hunterstrategy.beantree.analysis.DeserializationContext;
+import net.hunterstrategy.beantree.analysis.ReadAhead;
 
 public class ConfigurationTreeBuilder {
+    private static final int DEFAULT_READ_AHEAD = 16;
+    private static final int DEFAULT_READ_AHEAD_THREADS = 4;
+
     private ObjectMapper mapper;
     private ConfigAnalyzerCache cache;
     private String defaultExtension = ".json";
+    private Map<String, ObjectMapper> formats = new LinkedHashMap<>();
+    private Map<ObjectMapper, ObjectMapper> pooledFormats = new IdentityHashMap<>();
     private Map<Class<?>, Supplier<?>> factories = new ConcurrentHashMap<>();
+    private Map<Class<?>, IntFunction<?>> collectionFactories = new ConcurrentHashMap<>();
+    private boolean recordProvenance;
+    private ParseCache parseCache;
+    private boolean parseOnce;
+    private Cancellation cancellation;
+    private Duration timeout;
+    private ResourceGovernor governor;
+    private boolean collectErrors;
+    private ForkJoinPool pool;
+    private Path analysisCacheFile;
+    private boolean freeze;
+    private boolean analysisCacheLoaded;
+    private boolean deduplicateStrings;
+    private StringPool stringPool;
+    private ObjectMapper pooledMapper;
+    private boolean shareTemplates;
+    private int readAheadWindow;
+    private Executor readAheadExecutor;
+    private Shard shard;
 
     private DeserializationContext context;
 
@@ -56,6 +92,18 @@ public class ConfigurationTreeBuilder {
         factories.put(List.class, ArrayList::new);
         factories.put(Set.class, HashSet::new);
         factories.put(Queue.class, ArrayDeque::new);
+        collectionFactories.put(Map.class, ConcurrentHashMap::new);
+        collectionFactories.put(List.class, ArrayList::new);
+        collectionFactories.put(Set.class, size -> new HashSet<>(hashCapacity(size)));
+        collectionFactories.put(Queue.class, ArrayDeque::new);
+    }
+
+    /**
+     * The capacity of a hash table that holds the given number of entries
+     * without being resized, at the default load factor.
+     */
+    private static int hashCapacity(int size) {
+        return (int) Math.min(Integer.MAX_VALUE, size * 4L / 3 + 1);
     }
 
     private void possiblyInstantiateMapper(boolean withDefaultSettings) {
@@ -72,9 +120,84 @@ public class ConfigurationTreeBuilder {
         if (cache == null) {
             this.cache = new ConfigAnalyzerCache();
         }
+        if (analysisCacheFile != null && !analysisCacheLoaded) {
+            cache.load(analysisCacheFile);
+            analysisCacheLoaded = true;
+        }
         if (context == null) {
-            this.context = new DeserializationContext(mapper, cache, defaultExtension, factories);
+            this.context = newContext();
+        }
+    }
+
+    private DeserializationContext newContext() {
+        return newContext(buildStringPool(), parseOnce ? parseOnceCache() : null);
+    }
+
+    private StringPool buildStringPool() {
+        return stringPool != null ? stringPool : deduplicateStrings ? new StringPool() : null;
+    }
+
+    private static ParseCache parseOnceCache() {
+        return new ParseCache(DeserializationContext::fileIdentity);
+    }
+
+    /**
+     * @param strings the pool to intern strings in, or null
+     * @param parsed the cache to read files through if no {@link #parseCache(ParseCache)} is set, or null
+     */
+    private DeserializationContext newContext(StringPool strings, ParseCache parsed) {
+        ObjectMapper m = strings == null ? mapper : pooledMapper();
+        DeserializationContext ctx = new DeserializationContext(m, cache, defaultExtension, factories)
+                .collectionFactories(collectionFactories);
+        if (!formats.isEmpty()) {
+            Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+            formats.forEach((extension, format) -> mappers.put(
+                    extension,
+                    strings == null
+                            ? format
+                            : pooledFormats.computeIfAbsent(format, ConfigurationTreeBuilder::pooledCopy)));
+            ctx.formats(mappers);
+        }
+        if (recordProvenance) {
+            ctx.recordProvenance();
+        }
+        if (collectErrors) {
+            ctx.collectErrors();
+        }
+        if (shareTemplates) {
+            ctx.shareTemplates();
+        }
+        if (shard != null) {
+            ctx.shard(shard);
+        }
+        if (readAheadExecutor != null) {
+            ctx.readAhead(new ReadAhead(readAheadWindow, readAheadExecutor, governor));
+        }
+        return ctx.governor(governor)
+                .parseCache(parseCache == null ? parsed : parseCache)
+                .pool(pool)
+                .stringPool(strings);
+    }
+
+    /**
+     * A copy of the mapper that interns strings, made once per mapper so that
+     * Jackson's own caches are kept between builds.
+     */
+    private ObjectMapper pooledMapper() {
+        if (pooledMapper == null) {
+            pooledMapper = pooledCopy(mapper);
         }
+        return pooledMapper;
+    }
+
+    /**
+     * Copy a mapper with {@link StringPool#jacksonModule()} registered. Visibility
+     * is set again on the copy, since not every format's mapper copies it.
+     */
+    private static ObjectMapper pooledCopy(ObjectMapper mapper) {
+        ObjectMapper copy = mapper.copy().registerModule(StringPool.jacksonModule());
+        copy.setVisibility(mapper.getVisibilityChecker());
+        return copy;
     }
 
     /**
@@ -87,6 +210,7 @@ public class ConfigurationTreeBuilder {
         possiblyInstantiateMapper(false);
         this.mapper.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
         this.mapper.setVisibility(PropertyAccessor.SETTER, Visibility.PUBLIC_ONLY);
+        this.pooledMapper = null;
         return this;
     }
 
@@ -101,6 +225,8 @@ public class ConfigurationTreeBuilder {
             justification = "Intended behavior to allow client to pass in Mapper.")
     public ConfigurationTreeBuilder mapper(ObjectMapper mapper) {
         this.mapper = mapper;
+        this.pooledMapper = null;
+        this.context = null; // force context to be recreated
         return this;
     }
 
@@ -113,10 +239,38 @@ public class ConfigurationTreeBuilder {
      */
     public ConfigurationTreeBuilder reuseCache(ConfigurationTreeBuilder other) {
         this.cache = other.cache;
+        this.analysisCacheLoaded = false;
         this.context = null; // force context to be recreated
         return this;
     }
 
+    /**
+     * Keep the results of analysis in a file, so that they survive the JVM. The
+     * file is loaded when the builder is first used, and results for classes that
+     * have not changed since it was written are used without analyzing them again.
+     * It is written back after a build or a {@link #plan(Class)} that had to
+     * analyze any types. A file that cannot be read or written is ignored.
+     *
+     * @param file the file to load from and write to
+     */
+    public ConfigurationTreeBuilder analysisCacheFile(Path file) {
+        this.analysisCacheFile = file;
+        this.analysisCacheLoaded = false;
+        return this;
+    }
+
+    private void possiblySaveAnalysis() {
+        if (analysisCacheFile == null) {
+            return;
+        }
+        try {
+            cache.save(analysisCacheFile);
+        } catch (IOException e) {
+            // the file only saves time, so failing to write it never fails a build;
+            // it is tried again after the next build
+        }
+    }
+
     /**
      * Re-use the bean factories configured from another ConfigurationTreeBuilder
      * instance. This is just a convenience to shorten the amount of configuration
@@ -126,6 +280,10 @@ public class ConfigurationTreeBuilder {
      */
     public ConfigurationTreeBuilder reuseFactories(ConfigurationTreeBuilder other) {
         this.factories.putAll(other.factories);
+        this.collectionFactories
+                .keySet()
+                .removeIf(type -> other.factories.containsKey(type) && !other.collectionFactories.containsKey(type));
+        this.collectionFactories.putAll(other.collectionFactories);
         this.context = null; // force context to be recreated
         return this;
     }
@@ -140,6 +298,23 @@ public class ConfigurationTreeBuilder {
      */
     public <BEAN> ConfigurationTreeBuilder factory(Class<BEAN> type, Supplier<BEAN> factory) {
         factories.put(type, factory);
+        collectionFactories.remove(type);
+        return this;
+    }
+
+    /**
+     * Use a specific implementation to create the collections of {@link BeanCollection}s
+     * of the given type, given the number of entries that will be added to it. This
+     * allows collections to be created at the right size, rather than growing as entries
+     * are added. By default, collections specified by their interface names (Map, List,
+     * Set, Queue) are created at the right size, unless a {@link #factory(Class, Supplier)}
+     * is given for them.
+     *
+     * @param type the collection type, as declared by the annotated member
+     * @param factory creates a collection that will hold the given number of entries
+     */
+    public <C> ConfigurationTreeBuilder collectionFactory(Class<C> type, IntFunction<C> factory) {
+        collectionFactories.put(type, factory);
         return this;
     }
 
@@ -156,13 +331,456 @@ public class ConfigurationTreeBuilder {
         return this;
     }
 
+    /**
+     * Read files with the given extension with their own mapper, such as one for
+     * a binary format that generated files are written in, alongside files in the
+     * default format. Where a bean's file name has no extension, the default
+     * extension is tried first, then each registered extension in the order they
+     * were registered. Files with an extension that is not registered are read
+     * with the first format that recognizes their content, if any.
+     *
+     * @param extension the file extension
+     * @param mapper the mapper for the format, configured as it should be used
+     */
+    @SuppressFBWarnings(
+            value = "EI_EXPOSE_REP2",
+            justification = "Intended behavior to allow client to pass in Mapper.")
+    public ConfigurationTreeBuilder format(String extension, ObjectMapper mapper) {
+        formats.put(extension.startsWith(".") ? extension : String.format(".%s", extension), mapper);
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Record where every bean was loaded from, and a digest of the inputs it was
+     * loaded from, so that trees can be compared with {@link #diff}. This costs a
+     * digest of every file read, and an entry per bean for the life of the tree.
+     *
+     * @param record whether to record provenance in {@link #buildTree} results
+     */
+    public ConfigurationTreeBuilder recordProvenance(boolean record) {
+        this.recordProvenance = record;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Read files through a cache of parsed files, which may be shared with other
+     * builders and kept between builds. See {@link ParseCache} for the
+     * requirements on its keys.
+     *
+     * @param parseCache the cache to use, or null to read every file
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The cache is intended to be shared.")
+    public ConfigurationTreeBuilder parseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Parse each file once per build, however many places load it. Files reached
+     * from several beans, through symbolic or hard links, are parsed the first
+     * time and every later bean is bound from the same parsed tree, so each bean
+     * is still its own instance. Ignored when a {@link #parseCache(ParseCache)}
+     * is set, which already serves repeated reads.
+     *
+     * @param once whether to parse each file once per build
+     */
+    public ConfigurationTreeBuilder parseOnce(boolean once) {
+        this.parseOnce = once;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Open, list, and read every file through a governor, which limits the open
+     * files, buffered bytes, and read rate of every build that shares it. Pair it
+     * with a {@link ResourceGovernor#lowPriorityPool(int)} for background reloads.
+     *
+     * @param governor the governor to use, or null for no limits
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Governors are shared between builds.")
+    public ConfigurationTreeBuilder governor(ResourceGovernor governor) {
+        this.governor = governor;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Stop builds once the cancellation is cancelled or past its deadline, with a
+     * {@link BuildCancelledException} reporting how far they got. Every build uses
+     * the same cancellation until it is replaced, so replace a cancelled one
+     * before building again.
+     *
+     * @param cancellation the cancellation to check, or null to run builds to the end
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The caller keeps it to cancel builds.")
+    public ConfigurationTreeBuilder cancellation(Cancellation cancellation) {
+        this.cancellation = cancellation;
+        return this;
+    }
+
+    /**
+     * Stop each build that runs longer than the timeout, measured from when it is
+     * started. A batch from {@link #buildAll} has one timeout for all its roots.
+     * Ignored when a {@link #cancellation(Cancellation)} is set.
+     *
+     * @param timeout the longest a build may run, or null for no limit
+     */
+    public ConfigurationTreeBuilder timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    private Cancellation cancellationForBuild() {
+        if (cancellation != null || timeout == null) {
+            return cancellation;
+        }
+        return Cancellation.within(timeout);
+    }
+
+    /**
+     * Keep building past beans and collections that fail to load, so that one
+     * build reports every problem in the tree. {@link #build} then throws a
+     * single exception listing every error, and {@link #buildTree} returns
+     * the partially loaded tree along with its errors.
+     *
+     * @param collect whether to collect errors rather than stop at the first one
+     */
+    public ConfigurationTreeBuilder collectErrors(boolean collect) {
+        this.collectErrors = collect;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Load the entries of bean collections in parallel on the given pool.
+     * Each entry is loaded as an independent subtree, so templates declared
+     * inside one entry are not visible to the others while they load. Once the
+     * collection is loaded, they are declared in entry order, as in a sequential
+     * build: they are visible to whatever is loaded after the collection, and a
+     * name declared by two entries fails the build.
+     *
+     * @param pool the pool to use, or null to load everything on the calling thread
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The pool is intended to be shared.")
+    public ConfigurationTreeBuilder pool(ForkJoinPool pool) {
+        this.pool = pool;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Only load this worker's slice of each outermost {@link BeanCollection},
+     * skipping the entries owned by other shards without opening their files.
+     * Collections nested inside the entries of another collection are loaded
+     * in full.
+     *
+     * @param shard the shard to load, or null to load every entry
+     */
+    public ConfigurationTreeBuilder shard(Shard shard) {
+        this.shard = shard;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Read files ahead of parsing them, so that waiting on storage overlaps with
+     * parsing and injection. The entries of each collection are read ahead as soon
+     * as the collection is listed, and the files of the {@link Bean}s declared by
+     * each file as soon as it is parsed. Files are read into reusable buffers, and
+     * at most {@code files} are held in memory waiting to be parsed. Files are not
+     * read ahead when they are read through a {@link #parseCache(ParseCache)} or
+     * {@link #parseOnce(boolean)} is set.
+     *
+     * @param files the most files to read ahead of the parser, or 0 to disable reading ahead
+     * @param executor runs the reads
+     */
+    public ConfigurationTreeBuilder readAhead(int files, Executor executor) {
+        if (files < 0) {
+            throw new IllegalArgumentException("Cannot read ahead a negative number of files: " + files);
+        }
+        this.readAheadWindow = files;
+        this.readAheadExecutor = files == 0 ? null : executor;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Share the nested objects and collections of a template between the beans
+     * cloned from it, wherever a bean's file does not set them, instead of copying
+     * them for every bean. Each file is parsed before its bean is cloned, to see
+     * what it sets. Shared objects must be treated as read-only, since changing
+     * one changes it for every bean.
+     *
+     * @param share whether to share untouched template content
+     */
+    public ConfigurationTreeBuilder shareTemplates(boolean share) {
+        this.shareTemplates = share;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Give every build its own {@link StringPool}, so that equal strings in a tree
+     * share a single instance: bean names, collection keys, source file names, and
+     * every string read from a file or cloned from a template. This costs a lookup
+     * per string, and a copy of the mapper with {@link StringPool#jacksonModule()}
+     * registered; configure the mapper before the first build.
+     *
+     * @param deduplicate whether to pool the strings of each tree
+     */
+    public ConfigurationTreeBuilder deduplicateStrings(boolean deduplicate) {
+        this.deduplicateStrings = deduplicate;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Like {@link #deduplicateStrings(boolean)}, but with a pool that is kept
+     * between builds and may be shared with other builders, so that successive
+     * trees share strings with each other.
+     *
+     * @param pool the pool to use, or null to go back to per-build pools if enabled
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The pool is intended to be shared.")
+    public ConfigurationTreeBuilder stringPool(StringPool pool) {
+        this.stringPool = pool;
+        this.context = null; // force context to be recreated
+        return this;
+    }
+
+    /**
+     * Work out what building a tree of the given type will do, without reading
+     * any files. Every type reachable from the root type is analyzed along the
+     * way, so this can be called at startup to take analysis off the path of the
+     * first build, with this builder or any builder that
+     * {@link #reuseCache(ConfigurationTreeBuilder) reuses its cache}.
+     *
+     * @param type the root type of the tree
+     * @return the plan for building the tree
+     * @throws net.hunterstrategy.beantree.analysis.BeanTreeException if any annotation in the tree is invalid
+     */
+    public AnalysisPlan plan(Class<?> type) {
+        possiblyInstantiateDependencies();
+        AnalysisPlan plan = new AnalysisPlan(type, newContext());
+        possiblySaveAnalysis();
+        return plan;
+    }
+
+    /**
+     * Work out the reflection and resource configuration GraalVM native-image
+     * needs to build trees of the given type, from its {@link #plan(Class) plan}
+     * and the types the mapper binds inside its beans.
+     *
+     * @param type the root type of the tree
+     * @return the metadata, to be written where native-image will find it
+     */
+    public NativeImageMetadata nativeImageMetadata(Class<?> type) {
+        AnalysisPlan plan = plan(type);
+        return new NativeImageMetadata(plan, mapper);
+    }
+
+    /**
+     * Once a tree is built, replace every collection loaded by a {@link BeanCollection}
+     * with a right-sized immutable copy, keeping the order of ordered and sorted
+     * collections. Queues are only trimmed to size. Collections are left alone if
+     * the copy cannot be assigned to the member's type, or, for setter injection,
+     * if there is no matching getter to read them with.
+     *
+     * @param freeze whether to freeze collections after each build
+     */
+    public ConfigurationTreeBuilder freeze(boolean freeze) {
+        this.freeze = freeze;
+        return this;
+    }
+
     public <T> T build(Class<T> type, Path configurationFile) {
+        ConfigurationTree<T> tree = buildTree(type, configurationFile);
+        if (!tree.errors().isEmpty()) {
+            throw BeanTreeException.of(tree.errors());
+        }
+        return tree.root();
+    }
+
+    /**
+     * Build a configuration tree, keeping any information collected about the
+     * tree along with its root bean.
+     */
+    public <T> ConfigurationTree<T> buildTree(Class<T> type, Path configurationFile) {
         possiblyInstantiateDependencies();
+        DeserializationContext ctx = this.context.cancellation(cancellationForBuild());
+        this.context = null; // clear any state from deserialization
+        return buildTree(ctx, freeze ? new TreeFreezer(ctx) : null, stringPool, type, configurationFile);
+    }
 
+    /**
+     * Build a configuration tree in the background, on the {@link #pool(ForkJoinPool)}
+     * if there is one, or the common pool. Files are read ahead of the parser as
+     * described by {@link #readAhead(int, Executor)}; if reading ahead is not
+     * configured, up to 16 files are read ahead by up to 4 daemon threads that
+     * belong to the build, and are stopped when it completes, so that slow storage
+     * never holds up the common pool. The builder may be reconfigured or used
+     * again as soon as this returns.
+     *
+     * @return the root bean, or an exception as thrown by {@link #build(Class, Path)}
+     */
+    public <T> CompletableFuture<T> buildAsync(Class<T> type, Path configurationFile) {
+        possiblyInstantiateDependencies();
+        DeserializationContext ctx = this.context.cancellation(cancellationForBuild());
+        this.context = null;
+        if (readAheadExecutor == null) {
+            ctx.readAhead(ReadAhead.withOwnThreads(DEFAULT_READ_AHEAD, DEFAULT_READ_AHEAD_THREADS, governor));
+        }
+        TreeFreezer freezer = freeze ? new TreeFreezer(ctx) : null;
+        StringPool shared = stringPool;
+        Executor executor = pool == null ? ForkJoinPool.commonPool() : pool;
+        return CompletableFuture.supplyAsync(() -> buildTree(ctx, freezer, shared, type, configurationFile), executor)
+                .thenApply(tree -> {
+                    if (!tree.errors().isEmpty()) {
+                        throw BeanTreeException.of(tree.errors());
+                    }
+                    return tree.root();
+                });
+    }
+
+    /**
+     * Build a tree in the background in two stages, so that a service can start
+     * as soon as its critical beans are loaded. The root bean is ready once its
+     * own file and its members with a {@link Bean#priority()} or
+     * {@link BeanCollection#priority()} above zero are loaded, along with the
+     * whole subtree of each; the rest of the tree, including the root's
+     * {@link Name} and other post-phase members, is loaded after. Only the
+     * members loaded before readiness may be read until the build completes:
+     * the rest, including post-phase members of the root such as its
+     * {@link Name} and {@link Indexed} members, are written after the root is
+     * published. With {@link #freeze(boolean)}, the collections loaded before
+     * readiness are frozen before the root is published, and the rest once
+     * they are loaded.
+     *
+     * Runs on the {@link #pool(ForkJoinPool)} if there is one, or the common
+     * pool. The builder may be reconfigured or used again as soon as this returns.
+     *
+     * @return the readiness and completion of the build
+     */
+    public <T> ProgressiveBuild<T> buildProgressively(Class<T> type, Path configurationFile) {
+        possiblyInstantiateDependencies();
+        DeserializationContext ctx = this.context.cancellation(cancellationForBuild());
+        this.context = null;
+        CompletableFuture<T> ready = new CompletableFuture<>();
+        TreeFreezer freezer = freeze ? new TreeFreezer(ctx) : null;
+        ctx.onReady(root -> {
+            if (freezer != null) {
+                freezer.freezeReady(root); // before publishing, as the root is not written to after
+            }
+            ready.complete(type.cast(root));
+        });
+        StringPool shared = stringPool;
+        Executor executor = pool == null ? ForkJoinPool.commonPool() : pool;
+        CompletableFuture<ConfigurationTree<T>> completion =
+                CompletableFuture.supplyAsync(() -> buildTree(ctx, freezer, shared, type, configurationFile), executor);
+        completion.whenComplete((tree, e) -> {
+            if (e != null) {
+                ready.completeExceptionally(e);
+            }
+        });
+        return new ProgressiveBuild<>(ready, completion);
+    }
+
+    private <T> ConfigurationTree<T> buildTree(
+            DeserializationContext ctx, TreeFreezer freezer, StringPool shared, Class<T> type, Path configurationFile) {
+        ConfigurationTree<T> tree = loadTree(ctx, freezer, shared, type, configurationFile);
+        possiblySaveAnalysis();
+        return tree;
+    }
+
+    /**
+     * @param freezer freezes the tree once it is loaded, or null
+     * @param shared the pool given to {@link #stringPool(StringPool)}, which the tree
+     *     keeps; a pool made for the build is dropped once its savings are counted
+     */
+    private static <T> ConfigurationTree<T> loadTree(
+            DeserializationContext ctx, TreeFreezer freezer, StringPool shared, Class<T> type, Path configurationFile) {
         try {
-            return context.deserialize(type, configurationFile);
+            T root = ctx.deserialize(type, configurationFile);
+            if (freezer != null) {
+                freezer.freeze(root);
+            }
+            return new ConfigurationTree<>(
+                    root, configurationFile, ctx.provenance(), ctx.errors(), ctx.stringPool(), shared);
         } finally {
-            this.context = null; // clear any state from deserialization
+            ctx.closeReadAhead();
+        }
+    }
+
+    /**
+     * Build a tree for each of many roots of the same type, such as one per tenant,
+     * as a single job. Every root is scheduled at once on the {@link #pool(ForkJoinPool)},
+     * or the common pool, and the roots share this builder's mapper and analysis,
+     * the readers made from the mapper, and the string pool if strings are
+     * deduplicated. With {@link #parseOnce(boolean)}, each file is parsed once for
+     * the whole batch, so defaults shared between roots are only read once.
+     *
+     * A root that fails to build does not stop the others; its exception is
+     * reported in {@link BatchBuild#failures()}.
+     *
+     * @param type the root type of every tree
+     * @param roots the root file of each tree, by name
+     * @return the tree or failure of each root
+     */
+    public <T> BatchBuild<T> buildAll(Class<T> type, Map<String, Path> roots) {
+        possiblyInstantiateDependencies();
+        StringPool strings = buildStringPool();
+        StringPool shared = stringPool;
+        ParseCache parsed = parseOnce ? parseOnceCache() : null;
+        Cancellation stop = cancellationForBuild();
+        boolean freezeTree = freeze;
+        Executor executor = pool == null ? ForkJoinPool.commonPool() : pool;
+        DeserializationContext first = null;
+        Map<String, CompletableFuture<ConfigurationTree<T>>> builds = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> root : roots.entrySet()) {
+            DeserializationContext ctx = newContext(strings, parsed).cancellation(stop);
+            if (first == null) {
+                first = ctx;
+            } else {
+                ctx.shareReaders(first);
+            }
+            Path file = root.getValue();
+            TreeFreezer freezer = freezeTree ? new TreeFreezer(ctx) : null;
+            builds.put(
+                    root.getKey(),
+                    CompletableFuture.supplyAsync(() -> loadTree(ctx, freezer, shared, type, file), executor));
         }
+
+        Map<String, ConfigurationTree<T>> trees = new LinkedHashMap<>();
+        Map<String, BeanTreeException> failures = new LinkedHashMap<>();
+        builds.forEach((name, build) -> {
+            try {
+                trees.put(name, build.join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                failures.put(
+                        name,
+                        cause instanceof BeanTreeException ? (BeanTreeException) cause : new BeanTreeException(cause));
+            }
+        });
+        possiblySaveAnalysis();
+        return new BatchBuild<>(trees, failures);
+    }
+
+    /**
+     * Compare two versions of a configuration tree, bean by bean. Both trees must
+     * have been built with {@link #recordProvenance(boolean)} enabled; any subtree
+     * loaded from identical inputs in both versions is skipped without being
+     * inspected. Changes are produced lazily as the stream is consumed.
+     *
+     * @param previous the earlier version of the tree
+     * @param current the later version of the tree
+     * @return the added, removed, and modified beans
+     */
+    public <T> Stream<Change> diff(ConfigurationTree<T> previous, ConfigurationTree<T> current) {
+        possiblyInstantiateDependencies();
+        return new TreeDiff(newContext(), mapper, previous, current).changes();
     }
 }
@@ -0,0 +1,180 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A property that is kept as the tokens it was parsed from, and only bound to
+ * its type the first time it is read with {@link #get()}. Use it for large
+ * values that are rarely read, so that they cost neither the time to bind them
+ * nor the memory of their bound form until they are needed.
+ *
+ * ```java
+ * public class Rules {
+ *     Deferred<Map<String, Rule>> table;
+ * }
+ * ```
+ *
+ * The value is bound with the same reader as the rest of its file, and once bound
+ * the tokens are released. Serializing a deferred value writes its tokens as they
+ * were without binding them, or its value once it has been bound.
+ */
+@JsonDeserialize(using = Deferred.Deserializer.class)
+@JsonSerialize(using = Deferred.Serializer.class)
+public final class Deferred<T> {
+    private final JavaType type;
+    private volatile TokenBuffer tokens;
+    private volatile ObjectReader reader;
+    private volatile T value;
+
+    private Deferred(JavaType type, TokenBuffer tokens, ObjectReader reader) {
+        this.type = type;
+        this.tokens = tokens;
+        this.reader = reader;
+    }
+
+    /**
+     * Create a value that has already been bound.
+     */
+    public static <T> Deferred<T> of(T value) {
+        Deferred<T> deferred = new Deferred<>(null, null, null);
+        deferred.value = value;
+        return deferred;
+    }
+
+    /**
+     * Get the value, binding it if this is the first time it has been read.
+     *
+     * @throws UncheckedIOException if the value cannot be bound to its type
+     */
+    public T get() {
+        if (tokens != null) {
+            synchronized (this) {
+                if (tokens != null) {
+                    value = bind();
+                    tokens = null;
+                    reader = null;
+                }
+            }
+        }
+        return value;
+    }
+
+    private T bind() {
+        try (JsonParser parser = tokens.asParser(reader)) {
+            return reader.forType(type).readValue(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether the value has been bound yet.
+     */
+    public boolean isBound() {
+        return tokens == null;
+    }
+
+    @Override
+    public String toString() {
+        return isBound() ? String.valueOf(value) : "Deferred<" + type + ">";
+    }
+
+    static final class Deserializer extends StdDeserializer<Deferred<?>> implements ContextualDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JavaType valueType;
+
+        Deserializer() {
+            this(null);
+        }
+
+        private Deserializer(JavaType valueType) {
+            super(Deferred.class);
+            this.valueType = valueType;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) {
+            JavaType type = property == null ? ctxt.getContextualType() : property.getType();
+            JavaType contained = type == null ? null : type.containedType(0);
+            return new Deserializer(contained == null ? ctxt.constructType(Object.class) : contained);
+        }
+
+        @Override
+        public Deferred<?> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            TokenBuffer tokens = ctxt.bufferAsCopyOfValue(p);
+            return new Deferred<>(valueType, tokens, readerOf(p.getCodec(), ctxt));
+        }
+
+        /**
+         * A reader like the one reading the file, without the bean being read into.
+         */
+        private static ObjectReader readerOf(ObjectCodec codec, DeserializationContext ctxt) {
+            if (codec instanceof ObjectReader) {
+                return ((ObjectReader) codec).withValueToUpdate(null);
+            }
+            if (codec instanceof ObjectMapper) {
+                return ((ObjectMapper) codec).reader();
+            }
+            return new ObjectMapper().reader(ctxt.getConfig().getAttributes());
+        }
+    }
+
+    static final class Serializer extends StdSerializer<Deferred<?>> {
+        private static final long serialVersionUID = 1L;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Serializer() {
+            super((Class) Deferred.class);
+        }
+
+        @Override
+        public void serialize(Deferred<?> deferred, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            TokenBuffer tokens = deferred.tokens;
+            if (tokens != null) {
+                tokens.serialize(gen);
+            } else {
+                provider.defaultSerializeValue(deferred.value, gen);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+
+/**
+ * Decide whether to load an entry of a {@link BeanCollection} from the start of
+ * its file, before it is parsed in full or cloned from a template. The parser
+ * is closed as soon as the filter returns, so the rest of the file is never read.
+ * If the filter cannot read the file, the entry is loaded anyway, so that the
+ * error is reported for that entry alone.
+ * Filters need a public no-arg constructor, or a factory registered with the builder.
+ */
+@FunctionalInterface
+public interface HeaderFilter {
+    /**
+     * @param parser a parser over the file, positioned before its first token
+     * @return whether to load the entry
+     */
+    boolean accept(JsonParser parser) throws IOException;
+
+    /**
+     * Skip entries whose top-level {@code enabled} field is {@code false}. The
+     * file is read until the field is found; nested values are skipped without
+     * being bound.
+     */
+    class Enabled implements HeaderFilter {
+        @Override
+        public boolean accept(JsonParser parser) throws IOException {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return true;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("enabled".equals(field)) {
+                    return value != JsonToken.VALUE_FALSE;
+                }
+                parser.skipChildren();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a lookup index over the entries of a {@link BeanCollection}, keyed by a
+ * property of each entry. Indexes are built as the collection is loaded, and
+ * injected into a {@link BeanIndex} member of the same bean with {@link Indexed}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Index {
+    /**
+     * The name of the index, for {@link Indexed} to refer to.
+     */
+    String name();
+
+    /**
+     * The property of each entry to index it by, as named by Jackson. Entries
+     * with a null value are left out of the index.
+     */
+    String property();
+
+    /**
+     * Whether every key must belong to a single entry. Loading fails if two
+     * entries of a unique index have the same key.
+     */
+    boolean unique() default false;
+}
@@ -0,0 +1,49 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import net.hunterstrategy.beantree.analysis.ConfigTreeAnnotation;
+import net.hunterstrategy.beantree.analysis.ConfigTreeAnnotation.Phase;
+import net.hunterstrategy.beantree.processor.IndexedProcessor;
+
+/**
+ * Inject an {@link Index} declared by a {@link BeanCollection} of the same bean
+ * into a {@link BeanIndex} member.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@ConfigTreeAnnotation(processor = IndexedProcessor.class, phase = Phase.post)
+@JacksonAnnotationsInside
+@JsonIgnore
+public @interface Indexed {
+    /**
+     * The name of the index.
+     */
+    String value();
+}
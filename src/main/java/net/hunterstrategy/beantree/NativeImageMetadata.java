@@ -0,0 +1,228 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import net.hunterstrategy.beantree.analysis.ConfigTreeAnnotation;
+
+/**
+ * The reachability metadata that GraalVM native-image needs to build a tree of
+ * a given type, worked out from its {@link AnalysisPlan}: the bean types that are
+ * analyzed and bound reflectively, the types Jackson binds inside them, the
+ * annotation processors, and the files of the tree if they are loaded as
+ * resources. Write it to `META-INF/native-image/<group>/<artifact>` in the
+ * application's resources, or pass the directory to native-image with
+ * `-H:ConfigurationFileDirectories`.
+ */
+public final class NativeImageMetadata {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Map<String, Reflection> types = new TreeMap<>();
+    private final Set<String> resources = new TreeSet<>();
+    private final ObjectMapper mapper;
+
+    /**
+     * What native-image should allow to be reflected on for a type.
+     */
+    private enum Reflection {
+        // only the public no-arg constructor
+        CONSTRUCTOR,
+        // everything that is declared
+        MEMBERS;
+    }
+
+    NativeImageMetadata(AnalysisPlan plan, ObjectMapper mapper) {
+        this.mapper = mapper;
+        for (Class<?> type : plan.types()) {
+            bean(mapper.constructType(type));
+            for (AnalysisPlan.Step step : plan.steps(type)) {
+                step(step);
+            }
+        }
+    }
+
+    private void step(AnalysisPlan.Step step) {
+        Annotation annotation = step.annotation();
+        types.put(annotation.annotationType().getName(), Reflection.MEMBERS);
+        ConfigTreeAnnotation cta = annotation.annotationType().getAnnotation(ConfigTreeAnnotation.class);
+        types.putIfAbsent(cta.processor().getName(), Reflection.CONSTRUCTOR);
+        if (annotation instanceof BeanCollection) {
+            Class<?> filter = ((BeanCollection) annotation).filter();
+            if (!HeaderFilter.class.equals(filter)) {
+                types.putIfAbsent(filter.getName(), Reflection.CONSTRUCTOR);
+            }
+        }
+        step.location().ifPresent(location -> resources.add("(.*/)?" + toRegex(location)));
+    }
+
+    /**
+     * Register a type that Jackson binds, and everything it binds in turn.
+     */
+    private void bean(JavaType type) {
+        if (type == null) {
+            return;
+        }
+        Class<?> raw = type.getRawClass();
+        if (Deferred.class.equals(raw)) {
+            types.put(Deferred.class.getName() + "$Deserializer", Reflection.CONSTRUCTOR);
+            types.put(Deferred.class.getName() + "$Serializer", Reflection.CONSTRUCTOR);
+            bean(type.containedType(0));
+            return;
+        }
+        if (type.isContainerType()) {
+            bean(type.getKeyType());
+            bean(type.getContentType());
+            return;
+        }
+        if (raw.isPrimitive() || raw.getPackageName().startsWith("java")) {
+            return;
+        }
+        if (types.put(raw.getName(), Reflection.MEMBERS) == Reflection.MEMBERS) {
+            return; // already registered
+        }
+        for (Class<?> c = raw.getSuperclass();
+                c != null && !c.getPackageName().startsWith("java");
+                c = c.getSuperclass()) {
+            types.put(c.getName(), Reflection.MEMBERS);
+        }
+        BeanDescription description = mapper.getDeserializationConfig().introspect(type);
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            bean(property.getPrimaryType());
+        }
+    }
+
+    /**
+     * Translate a location glob into a resource pattern.
+     */
+    private static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            String special = null;
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                special = ".*";
+                i++;
+            } else if (c == '*') {
+                special = "[^/]*";
+            } else if (c == '?') {
+                special = "[^/]";
+            } else if (c == '{') {
+                special = "(";
+            } else if (c == '}') {
+                special = ")";
+            } else if (c == ',') {
+                special = "|";
+            }
+            if (special == null) {
+                literal.append(c);
+            } else {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(special);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.toString();
+    }
+
+    /**
+     * The names of the types that are registered for reflection.
+     */
+    public Set<String> types() {
+        return Collections.unmodifiableSet(types.keySet());
+    }
+
+    /**
+     * The patterns of the resources that are included.
+     */
+    public Set<String> resources() {
+        return Collections.unmodifiableSet(resources);
+    }
+
+    /**
+     * The content of `reflect-config.json`.
+     */
+    public String reflectConfig() {
+        ArrayNode config = JSON.createArrayNode();
+        types.forEach((name, reflection) -> {
+            ObjectNode entry = config.addObject().put("name", name);
+            if (reflection == Reflection.MEMBERS) {
+                entry.put("allDeclaredFields", true)
+                        .put("allDeclaredMethods", true)
+                        .put("allDeclaredConstructors", true);
+            } else {
+                entry.putArray("methods").addObject().put("name", "<init>").putArray("parameterTypes");
+            }
+        });
+        return write(config);
+    }
+
+    /**
+     * The content of `resource-config.json`.
+     */
+    public String resourceConfig() {
+        ObjectNode config = JSON.createObjectNode();
+        ArrayNode includes = config.putObject("resources").putArray("includes");
+        resources.forEach(pattern -> includes.addObject().put("pattern", pattern));
+        return write(config);
+    }
+
+    private String write(Object config) {
+        try {
+            return JSON.writer().with(SerializationFeature.INDENT_OUTPUT).writeValueAsString(config) + "\n";
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write `reflect-config.json` and `resource-config.json` into a directory,
+     * creating it if needed.
+     */
+    public void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("reflect-config.json"), reflectConfig());
+        Files.writeString(dir.resolve("resource-config.json"), resourceConfig());
+    }
+}
@@ -0,0 +1,228 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A cache of parsed files, which can be shared between builds. Files are
+ * parsed into Jackson trees once, and every later read of a file with the
+ * same key binds from the cached tree instead of reading and parsing it.
+ *
+ * Keys must identify file *content*: two files with the same key must have
+ * the same bytes. A cache is also specific to the format of the files it
+ * holds; share it only between builders that read files the same way.
+ */
+public final class ParseCache {
+    private final Function<Path, Object> keyFunction;
+    private final ConcurrentMap<Object, Parsed> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, CompletableFuture<Parsed>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param keyFunction computes the key of a file, or null if the file should not be cached
+     */
+    public ParseCache(Function<Path, Object> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * Key files by their {@link BasicFileAttributes#fileKey()}. This is only correct
+     * for file systems whose file keys identify content, such as
+     * {@link net.hunterstrategy.beantree.git.GitFileSystems}; on most other file
+     * systems the file key identifies a location that can be rewritten.
+     */
+    public static ParseCache byFileKey() {
+        return new ParseCache(ParseCache::fileKey);
+    }
+
+    private static Object fileKey(Path p) {
+        try {
+            return Files.readAttributes(p, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The parsed content of a file.
+     */
+    public static final class Parsed {
+        private final JsonNode tree;
+        private final byte[] digest;
+        private volatile boolean used = true;
+
+        Parsed(JsonNode tree, byte[] digest) {
+            this.tree = tree;
+            this.digest = digest;
+        }
+
+        /**
+         * The parsed tree, which must not be modified.
+         */
+        public JsonNode tree() {
+            return tree;
+        }
+
+        /**
+         * The SHA-256 digest of the file content, or null if it was not requested.
+         */
+        public byte[] digest() {
+            return digest == null ? null : digest.clone();
+        }
+    }
+
+    /**
+     * Read a file through the cache, parsing it only if it is not already cached.
+     *
+     * @param file the file to read
+     * @param mapper the mapper used to parse the file
+     * @param withDigest whether the digest of the file content is needed
+     */
+    public Parsed read(Path file, ObjectMapper mapper, boolean withDigest) throws IOException {
+        return read(file, mapper, withDigest, null);
+    }
+
+    /**
+     * Read a file through the cache, reading it through a governor if it is not
+     * already cached.
+     *
+     * @param governor limits the read, or null
+     */
+    public Parsed read(Path file, ObjectMapper mapper, boolean withDigest, ResourceGovernor governor)
+            throws IOException {
+        Object key = keyFunction.apply(file);
+        if (key == null) {
+            misses.increment();
+            return parse(file, mapper, withDigest, governor);
+        }
+        Parsed parsed = hit(entries.get(key), withDigest);
+        if (parsed != null) {
+            return parsed;
+        }
+
+        // threads missing the same key at once wait for the first one to parse it
+        CompletableFuture<Parsed> parsing = new CompletableFuture<>();
+        CompletableFuture<Parsed> first = inFlight.putIfAbsent(key, parsing);
+        if (first != null) {
+            try {
+                parsed = hit(first.join(), withDigest);
+            } catch (CompletionException e) {
+                parsed = null; // parse it again, to fail with its own exception
+            }
+            if (parsed != null) {
+                return parsed;
+            }
+        } else {
+            try {
+                parsed = hit(entries.get(key), withDigest);
+                if (parsed == null) {
+                    misses.increment();
+                    parsed = parse(file, mapper, withDigest, governor);
+                    entries.put(key, parsed);
+                }
+                parsing.complete(parsed);
+                return parsed;
+            } catch (IOException | RuntimeException e) {
+                parsing.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, parsing);
+            }
+        }
+
+        misses.increment();
+        parsed = parse(file, mapper, withDigest, governor);
+        entries.put(key, parsed);
+        return parsed;
+    }
+
+    /**
+     * Count a read served by a cached entry, if the entry has what the read needs.
+     */
+    private Parsed hit(Parsed parsed, boolean withDigest) {
+        if (parsed == null || (withDigest && parsed.digest == null)) {
+            return null;
+        }
+        hits.increment();
+        parsed.used = true;
+        return parsed;
+    }
+
+    private static Parsed parse(Path file, ObjectMapper mapper, boolean withDigest, ResourceGovernor governor)
+            throws IOException {
+        ResourceGovernor.ContentHandler<Parsed> parse =
+                content -> new Parsed(mapper.readTree(content), withDigest ? sha256(content) : null);
+        return governor == null ? parse.handle(Files.readAllBytes(file)) : governor.read(file, parse);
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Drop every entry that has not been read since the last call to this method.
+     * Calling this after each build keeps only the files of the latest tree.
+     */
+    public void evictUnused() {
+        entries.values().removeIf(p -> !p.used);
+        entries.values().forEach(p -> p.used = false);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The number of reads served from the cache.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of reads that parsed a file.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+}
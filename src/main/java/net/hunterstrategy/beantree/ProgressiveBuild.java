@@ -0,0 +1,69 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.util.concurrent.CompletableFuture;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+
+/**
+ * A build started by {@link ConfigurationTreeBuilder#buildProgressively}, which
+ * makes its root available before the whole tree is loaded.
+ */
+public final class ProgressiveBuild<T> {
+    private final CompletableFuture<T> ready;
+    private final CompletableFuture<ConfigurationTree<T>> completion;
+
+    ProgressiveBuild(CompletableFuture<T> ready, CompletableFuture<ConfigurationTree<T>> completion) {
+        this.ready = ready;
+        this.completion = completion;
+    }
+
+    /**
+     * Completes with the root bean once its high-priority members are loaded,
+     * or exceptionally if the build fails before then.
+     */
+    public CompletableFuture<T> ready() {
+        return ready.copy();
+    }
+
+    /**
+     * Completes with the whole tree once it is loaded, along with any errors
+     * collected while building it.
+     */
+    public CompletableFuture<ConfigurationTree<T>> completion() {
+        return completion.copy();
+    }
+
+    /**
+     * Completes with the root bean once the whole tree is loaded, or with an
+     * exception as thrown by {@link ConfigurationTreeBuilder#build}.
+     */
+    public CompletableFuture<T> root() {
+        return completion.thenApply(tree -> {
+            if (!tree.errors().isEmpty()) {
+                throw BeanTreeException.of(tree.errors());
+            }
+            return tree.root();
+        });
+    }
+}
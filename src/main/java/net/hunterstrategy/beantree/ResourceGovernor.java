@@ -0,0 +1,276 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Limits the resources builds take from the rest of the process: how many files
+ * and directories they hold open at once, how many bytes of file content they
+ * hold in memory waiting to be parsed, and how fast they read. A governor can be
+ * shared between builders, to limit all of their builds together. Every file a
+ * build opens and every directory it lists for a {@link BeanCollection} goes
+ * through its governor.
+ *
+ * Combine a governor with a {@link #lowPriorityPool(int) low-priority pool}, so
+ * that background reloads also give way to other threads for CPU.
+ */
+public final class ResourceGovernor {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Semaphore openFiles;
+    private final Semaphore bytesInFlight;
+    private final int byteBudget;
+    private final long bytesPerSecond;
+    private final Object rateLock = new Object();
+    private long nextRead;
+
+    /**
+     * @param openFiles the most files and directories open at once, or 0 for no limit
+     * @param bytesInFlight the most bytes of file content held before being parsed, or 0 for no limit;
+     *     a larger file is read alone
+     * @param bytesPerSecond the fastest rate at which to read files, or 0 for no limit
+     */
+    public ResourceGovernor(int openFiles, int bytesInFlight, long bytesPerSecond) {
+        if (openFiles < 0 || bytesInFlight < 0 || bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Limits cannot be negative");
+        }
+        this.openFiles = openFiles == 0 ? null : new Semaphore(openFiles, true);
+        this.bytesInFlight = bytesInFlight == 0 ? null : new Semaphore(bytesInFlight, true);
+        this.byteBudget = bytesInFlight;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * A pool of daemon threads at the lowest priority, for builds that should
+     * not compete with serving threads.
+     *
+     * @param parallelism the number of threads
+     */
+    public static ForkJoinPool lowPriorityPool(int parallelism) {
+        return new ForkJoinPool(
+                parallelism,
+                pool -> {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    t.setDaemon(true);
+                    t.setName("beantree-low-priority-" + t.getPoolIndex());
+                    return t;
+                },
+                null,
+                false);
+    }
+
+    /**
+     * Reads file content, to be parsed while it is held.
+     */
+    @FunctionalInterface
+    public interface ContentHandler<T> {
+        T handle(byte[] content) throws IOException;
+    }
+
+    /**
+     * Read a whole file and hand its content to the handler, counting it as in
+     * flight until the handler returns.
+     */
+    public <T> T read(Path file, ContentHandler<T> handler) throws IOException {
+        int reserved = reservation(Files.size(file));
+        acquire(bytesInFlight, reserved);
+        try {
+            byte[] content;
+            try (InputStream in = newInputStream(file)) {
+                content = in.readAllBytes();
+            }
+            return handler.handle(content);
+        } finally {
+            release(bytesInFlight, reserved);
+        }
+    }
+
+    /**
+     * Count content that is about to be held in memory as in flight, if it fits
+     * within the byte limit now, for readers that hold content beyond a call to
+     * {@link #read(Path, ContentHandler)}. The bytes must be given back with
+     * {@link #releaseBytes(int)}.
+     *
+     * @param size the size of the content
+     * @return the bytes reserved, or -1 if they are not available without waiting
+     */
+    public int tryReserveBytes(long size) {
+        int reserved = reservation(size);
+        if (bytesInFlight == null || reserved == 0) {
+            return reserved;
+        }
+        try {
+            // a timed acquire, unlike tryAcquire(int), does not overtake waiting readers
+            return bytesInFlight.tryAcquire(reserved, 0, TimeUnit.NANOSECONDS) ? reserved : -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * Give back bytes reserved with {@link #tryReserveBytes(long)}.
+     */
+    public void releaseBytes(int reserved) {
+        release(bytesInFlight, reserved);
+    }
+
+    private int reservation(long size) {
+        return bytesInFlight == null ? 0 : (int) Math.min(size, byteBudget);
+    }
+
+    /**
+     * Open a file, counting it as open until the stream is closed. Reads from
+     * the stream are held to the read rate.
+     */
+    public InputStream newInputStream(Path file) throws IOException {
+        acquire(openFiles, 1);
+        try {
+            return new GovernedInputStream(Files.newInputStream(file));
+        } catch (IOException | RuntimeException e) {
+            release(openFiles, 1);
+            throw e;
+        }
+    }
+
+    /**
+     * Open a directory, counting it as open until the stream is closed.
+     */
+    public DirectoryStream<Path> newDirectoryStream(Path dir) throws IOException {
+        acquire(openFiles, 1);
+        DirectoryStream<Path> entries;
+        try {
+            entries = Files.newDirectoryStream(dir);
+        } catch (IOException | RuntimeException e) {
+            release(openFiles, 1);
+            throw e;
+        }
+        return new DirectoryStream<>() {
+            private boolean closed;
+
+            @Override
+            public Iterator<Path> iterator() {
+                return entries.iterator();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    try {
+                        entries.close();
+                    } finally {
+                        release(openFiles, 1);
+                    }
+                }
+            }
+        };
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) throws IOException {
+        if (semaphore == null || permits == 0) {
+            return;
+        }
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for the resource governor", e);
+        }
+    }
+
+    private static void release(Semaphore semaphore, int permits) {
+        if (semaphore != null && permits > 0) {
+            semaphore.release(permits);
+        }
+    }
+
+    /**
+     * Wait until bytes just read are within the read rate. Reads are paid for in
+     * the order they finish, so a burst after an idle period is not allowed.
+     */
+    private void throttle(int bytes) {
+        if (bytesPerSecond == 0 || bytes <= 0) {
+            return;
+        }
+        long until;
+        synchronized (rateLock) {
+            long now = System.nanoTime();
+            long start = nextRead - now > 0 ? nextRead : now;
+            nextRead = start + bytes * NANOS_PER_SECOND / bytesPerSecond;
+            until = nextRead;
+        }
+        for (long wait = until - System.nanoTime(); wait > 0; wait = until - System.nanoTime()) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private final class GovernedInputStream extends FilterInputStream {
+        private boolean closed;
+
+        GovernedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                throttle(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            throttle(n);
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    release(openFiles, 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Selects the slice of each outermost {@link BeanCollection} that one of several
+ * workers loads. Entries are assigned to shards by a hash of their bean name,
+ * so every worker that uses the same shard count and hash function agrees on
+ * who owns what, and entries that are not owned are skipped before their files
+ * are opened. Collections nested inside an owned entry are loaded in full.
+ */
+public final class Shard {
+    private final int index;
+    private final int count;
+    private final ToIntFunction<String> hash;
+
+    private Shard(int index, int count, ToIntFunction<String> hash) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + count);
+        }
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException(
+                    String.format("Shard index must be between 0 and %d: %d", count - 1, index));
+        }
+        this.index = index;
+        this.count = count;
+        this.hash = Objects.requireNonNull(hash, "hash");
+    }
+
+    /**
+     * Select a shard by the {@link String#hashCode()} of bean names, which is the
+     * same on every JVM.
+     *
+     * @param index this worker's shard, from 0 to {@code count - 1}
+     * @param count the number of shards
+     */
+    public static Shard of(int index, int count) {
+        return new Shard(index, count, String::hashCode);
+    }
+
+    /**
+     * Select a shard by a custom hash of bean names.
+     *
+     * @param index this worker's shard, from 0 to {@code count - 1}
+     * @param count the number of shards
+     * @param hash hashes bean names; must give the same result in every worker
+     */
+    public static Shard of(int index, int count, ToIntFunction<String> hash) {
+        return new Shard(index, count, hash);
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Whether the entry with the given bean name belongs to this shard.
+     */
+    public boolean owns(String name) {
+        return Math.floorMod(hash.applyAsInt(name), count) == index;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("shard %d of %d", index, count);
+    }
+}
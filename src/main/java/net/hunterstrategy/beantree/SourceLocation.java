@@ -0,0 +1,154 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * A compact reference to a source file, which can be injected with
+ * {@link SourceFile} in place of a {@link Path} or String. Locations are
+ * nodes in a trie of file names that is shared by every bean in a tree,
+ * so each bean only holds a reference to its file's node, and common
+ * directories are stored once. The path is only put back together when
+ * it is asked for.
+ *
+ * Locations are canonical within the tree they were loaded in: two beans
+ * from the same file hold the same instance.
+ */
+public final class SourceLocation {
+    private final SourceLocation parent;
+    private final String name;
+    private final FileSystem fileSystem;
+    private volatile ConcurrentMap<String, SourceLocation> children;
+
+    private SourceLocation(SourceLocation parent, String name, FileSystem fileSystem) {
+        this.parent = parent;
+        this.name = name;
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * The location of the directory containing this one, or null for the root
+     * of a file system, or the start of a relative path.
+     */
+    public SourceLocation parent() {
+        return parent;
+    }
+
+    /**
+     * The file name of this location, or the root component of the path
+     * (which is empty for relative paths) if this is a root.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Resolve the location to a path on the file system it was loaded from.
+     */
+    public Path toPath() {
+        return fileSystem.getPath(toString());
+    }
+
+    /**
+     * The location as a string, equal to the string form of its path.
+     */
+    @Override
+    public String toString() {
+        Deque<String> names = new ArrayDeque<>();
+        SourceLocation root = this;
+        for (; root.parent != null; root = root.parent) {
+            names.addFirst(root.name);
+        }
+        String separator = fileSystem.getSeparator();
+        StringBuilder sb = new StringBuilder(root.name);
+        boolean separated = root.name.isEmpty() || root.name.endsWith(separator);
+        for (String n : names) {
+            if (!separated) {
+                sb.append(separator);
+            }
+            sb.append(n);
+            separated = false;
+        }
+        return sb.toString();
+    }
+
+    private SourceLocation child(String childName, UnaryOperator<String> intern) {
+        ConcurrentMap<String, SourceLocation> c = children;
+        if (c == null) {
+            synchronized (this) {
+                c = children;
+                if (c == null) {
+                    c = new ConcurrentHashMap<>(4);
+                    children = c;
+                }
+            }
+        }
+        SourceLocation child = c.get(childName);
+        if (child != null) {
+            return child;
+        }
+        return c.computeIfAbsent(childName, n -> new SourceLocation(this, intern.apply(n), fileSystem));
+    }
+
+    /**
+     * The trie of locations for one tree, which may be shared between threads.
+     */
+    public static final class Trie {
+        private final ConcurrentMap<FileSystem, ConcurrentMap<String, SourceLocation>> roots =
+                new ConcurrentHashMap<>();
+        private final UnaryOperator<String> intern;
+
+        /**
+         * @param intern canonicalizes the names in the trie, such as {@link StringPool#intern(String)}
+         */
+        public Trie(UnaryOperator<String> intern) {
+            this.intern = intern;
+        }
+
+        public Trie() {
+            this(UnaryOperator.identity());
+        }
+
+        /**
+         * Find or add the location of a path.
+         */
+        public SourceLocation locate(Path path) {
+            FileSystem fs = path.getFileSystem();
+            Path root = path.getRoot();
+            String rootName = root == null ? "" : root.toString();
+            SourceLocation node = roots.computeIfAbsent(fs, f -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(rootName, r -> new SourceLocation(null, r, fs));
+            for (Path element : path) {
+                node = node.child(element.toString(), intern);
+            }
+            return node;
+        }
+    }
+}
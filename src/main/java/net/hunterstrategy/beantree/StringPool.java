@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.KeyDeserializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of canonical strings, so that equal strings loaded anywhere in a tree
+ * share a single instance: bean names, collection keys, source file names, and
+ * every string value and map key read by Jackson. A pool can be kept for a
+ * single build, or shared between builds so that later trees share strings with
+ * earlier ones; strings are held until the pool itself is dropped.
+ */
+public final class StringPool {
+    private static final long STRING_OVERHEAD = 24;
+    private static final long ARRAY_OVERHEAD = 16;
+    // a hash map node, and its slot in the table at the default load factor
+    private static final long ENTRY_OVERHEAD = 40;
+
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * Get the canonical instance of a string, adding it to the pool if it
+     * is not there yet.
+     *
+     * @param s the string, or null
+     * @return the canonical instance, or null if the string is null
+     */
+    @SuppressFBWarnings(
+            value = "ES_COMPARING_PARAMETER_STRING_WITH_EQ",
+            justification = "Identity is the point: only distinct instances are replaced.")
+    public String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        String canonical = strings.putIfAbsent(s, s);
+        if (canonical == null) {
+            return s;
+        }
+        if (canonical != s) {
+            hits.increment();
+            bytesSaved.add(sizeOf(s));
+        }
+        return canonical;
+    }
+
+    /**
+     * Estimate the retained size of a string, assuming compressed object
+     * pointers and one byte per character.
+     */
+    static long sizeOf(String s) {
+        return STRING_OVERHEAD + ((ARRAY_OVERHEAD + s.length() + 7) & ~7L);
+    }
+
+    /**
+     * The number of distinct strings in the pool.
+     */
+    public int size() {
+        return strings.size();
+    }
+
+    /**
+     * The number of strings that were replaced by a canonical instance.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * An estimate of the memory saved by replacing strings with their canonical
+     * instances. Only counts strings that were replaced; strings that would have
+     * been shared anyway are not included. Nor is the memory the pool itself
+     * holds, about 40 bytes per distinct string, which a
+     * pool kept between builds costs for as long as it is kept; see
+     * {@link #overhead()}.
+     */
+    public long bytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    /**
+     * An estimate of the memory the pool holds beyond the strings themselves: a
+     * map entry for every distinct string.
+     */
+    public long overhead() {
+        return ENTRY_OVERHEAD * strings.size();
+    }
+
+    /**
+     * A Jackson module that interns every string value and map key through the
+     * pool set as the {@code StringPool} attribute of the reader, if there is one.
+     * For example: {@code mapper.readerFor(type).withAttribute(StringPool.class, pool)}.
+     */
+    public static Module jacksonModule() {
+        SimpleModule module = new SimpleModule("StringPool");
+        module.addDeserializer(String.class, new PooledStringDeserializer());
+        module.addKeyDeserializer(String.class, new PooledKeyDeserializer());
+        return module;
+    }
+
+    private static String intern(DeserializationContext ctxt, String s) {
+        Object pool = ctxt.getAttribute(StringPool.class);
+        return pool instanceof StringPool ? ((StringPool) pool).intern(s) : s;
+    }
+
+    private static final class PooledStringDeserializer extends StringDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return intern(ctxt, super.deserialize(p, ctxt));
+        }
+    }
+
+    private static final class PooledKeyDeserializer extends KeyDeserializer {
+        @Override
+        public Object deserializeKey(String key, DeserializationContext ctxt) {
+            return intern(ctxt, key);
+        }
+    }
+}
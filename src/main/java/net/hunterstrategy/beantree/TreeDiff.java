@@ -0,0 +1,179 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import net.hunterstrategy.beantree.Change.Kind;
+import net.hunterstrategy.beantree.analysis.ConfigTreeAnnotation.Phase;
+import net.hunterstrategy.beantree.analysis.DeserializationContext;
+import net.hunterstrategy.beantree.analysis.PhaseComparison;
+import net.hunterstrategy.beantree.analysis.Provenance;
+
+/**
+ * Walk two versions of a configuration tree side by side, following the same
+ * injection points used to build them. Beans whose provenance digests match
+ * are skipped without being inspected, since everything beneath them was
+ * loaded from identical inputs.
+ */
+final class TreeDiff {
+    private final DeserializationContext context;
+    private final ObjectMapper ownState;
+    private final ConfigurationTree<?> previous;
+    private final ConfigurationTree<?> current;
+
+    TreeDiff(
+            DeserializationContext context,
+            ObjectMapper mapper,
+            ConfigurationTree<?> previous,
+            ConfigurationTree<?> current) {
+        if (!previous.hasProvenance() || !current.hasProvenance()) {
+            throw new IllegalArgumentException("Both trees must be built with provenance recorded.");
+        }
+        this.context = context;
+        this.ownState = ownStateMapper(mapper);
+        this.previous = previous;
+        this.current = current;
+    }
+
+    /**
+     * Serialize only the properties of a bean that come from its own file, leaving
+     * out the members that are injected from other files.
+     */
+    private static ObjectMapper ownStateMapper(ObjectMapper mapper) {
+        SimpleModule module = new SimpleModule();
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public List<BeanPropertyWriter> changeProperties(
+                    SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+                return beanProperties.stream()
+                        .filter(w -> w.getAnnotation(Bean.class) == null)
+                        .filter(w -> w.getAnnotation(BeanCollection.class) == null)
+                        .filter(w -> w.getAnnotation(Template.class) == null)
+                        .collect(Collectors.toList());
+            }
+        });
+        return mapper.copy().registerModule(module).disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+    }
+
+    Stream<Change> changes() {
+        return compareBeans(JsonPointer.empty(), previous.root(), current.root());
+    }
+
+    private Stream<Change> compareBeans(JsonPointer pointer, Object before, Object after) {
+        if (before == null && after == null) {
+            return Stream.empty();
+        }
+        if (before == null || after == null) {
+            Kind kind = before == null ? Kind.ADDED : Kind.REMOVED;
+            return Stream.of(change(kind, pointer, before, after));
+        }
+
+        Optional<Provenance> p1 = previous.provenance(before);
+        Optional<Provenance> p2 = current.provenance(after);
+        if (p1.isPresent() && p1.get().sameContent(p2.orElse(null))) {
+            return Stream.empty();
+        }
+        if (!before.getClass().equals(after.getClass())) {
+            return Stream.of(change(Kind.MODIFIED, pointer, before, after));
+        }
+
+        Supplier<Stream<Change>> own = () -> {
+            JsonNode n1 = ownState.valueToTree(before);
+            JsonNode n2 = ownState.valueToTree(after);
+            return n1.equals(n2) ? Stream.empty() : Stream.of(change(Kind.MODIFIED, pointer, before, after));
+        };
+        Supplier<Stream<Change>> members = () -> context.analyzedInjectors(before.getClass()).stream()
+                .filter(i -> PhaseComparison.ordinal(i) != Phase.post.ordinal())
+                .flatMap(i -> compareMembers(pointer.appendProperty(i.name()), i.value(before), i.value(after)));
+        return Stream.of(own, members).flatMap(Supplier::get);
+    }
+
+    private Stream<Change> compareMembers(JsonPointer pointer, Object before, Object after) {
+        if (isCollection(before) || isCollection(after)) {
+            Map<String, Object> entries1 = entries(previous, before);
+            Map<String, Object> entries2 = entries(current, after);
+            TreeSet<String> keys = new TreeSet<>(entries1.keySet());
+            keys.addAll(entries2.keySet());
+            return keys.stream()
+                    .flatMap(k -> compareBeans(pointer.appendProperty(k), entries1.get(k), entries2.get(k)));
+        }
+        return compareBeans(pointer, before, after);
+    }
+
+    private static boolean isCollection(Object o) {
+        return o instanceof Map || o instanceof Collection || o instanceof Object[];
+    }
+
+    /**
+     * Key collection entries by name. Maps are already keyed; other collections
+     * use the name each entry was loaded with.
+     */
+    private static Map<String, Object> entries(ConfigurationTree<?> tree, Object collection) {
+        Map<String, Object> entries = new LinkedHashMap<>();
+        if (collection instanceof Object[]) {
+            collection = Arrays.asList((Object[]) collection);
+        }
+        if (collection instanceof Map) {
+            ((Map<?, ?>) collection).forEach((k, v) -> entries.put(String.valueOf(k), v));
+        } else if (collection instanceof Collection) {
+            int index = 0;
+            for (Object o : (Collection<?>) collection) {
+                String key = tree.provenance(o).map(Provenance::name).orElse(String.valueOf(index));
+                entries.put(key, o);
+                index++;
+            }
+        }
+        return entries;
+    }
+
+    private Change change(Kind kind, JsonPointer pointer, Object before, Object after) {
+        return new Change(kind, pointer, sourceOf(previous, before), sourceOf(current, after));
+    }
+
+    private static Path sourceOf(ConfigurationTree<?> tree, Object bean) {
+        return bean == null
+                ? null
+                : tree.provenance(bean).map(Provenance::source).orElse(null);
+    }
+}
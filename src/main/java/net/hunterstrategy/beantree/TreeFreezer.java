@@ -0,0 +1,156 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import net.hunterstrategy.beantree.analysis.ConfigTreeAnnotation.Phase;
+import net.hunterstrategy.beantree.analysis.DeserializationContext;
+import net.hunterstrategy.beantree.analysis.Injector;
+import net.hunterstrategy.beantree.analysis.PhaseComparison;
+
+/**
+ * Walk a built tree, following the same injection points used to build it,
+ * and replace every collection loaded by a {@link BeanCollection} with a
+ * right-sized immutable copy. Ordered and sorted collections keep their
+ * order. Queues have no immutable equivalent, so they are only trimmed.
+ */
+final class TreeFreezer {
+    private final DeserializationContext context;
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Object readyRoot;
+
+    TreeFreezer(DeserializationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Freeze the members of a root that are loaded before it is ready, in a
+     * progressive build. Its other members are frozen by {@link #freeze(Object)}
+     * once the whole tree is loaded, without revisiting these.
+     */
+    void freezeReady(Object root) {
+        readyRoot = root;
+        visited.add(root);
+        freezeMembers(root, i -> !DeserializationContext.deferredUntilReady(i));
+    }
+
+    void freeze(Object bean) {
+        if (bean != null && bean == readyRoot) {
+            readyRoot = null;
+            freezeMembers(bean, DeserializationContext::deferredUntilReady);
+            return;
+        }
+        if (bean == null || !visited.add(bean)) {
+            return;
+        }
+        freezeMembers(bean, i -> true);
+    }
+
+    private void freezeMembers(Object bean, Predicate<Injector> members) {
+        for (Injector i : context.analyzedInjectors(bean.getClass())) {
+            if (PhaseComparison.phaseOf(i) == Phase.post || !members.test(i)) {
+                continue; // post-phase members are names and sources, not beans
+            }
+            Object value = i.value(bean);
+            if (value instanceof Map) {
+                ((Map<?, ?>) value).values().forEach(this::freeze);
+            } else if (value instanceof Collection) {
+                ((Collection<?>) value).forEach(this::freeze);
+            } else if (value instanceof Object[]) {
+                Arrays.asList((Object[]) value).forEach(this::freeze);
+            } else {
+                freeze(value);
+            }
+
+            if (i.annotation() instanceof BeanCollection && value != null) {
+                Object frozen = frozen(value);
+                if (frozen != value && i.targetType().isInstance(frozen)) {
+                    i.assign(bean, frozen);
+                }
+            }
+        }
+    }
+
+    static Object frozen(Object value) {
+        if (value instanceof Map) {
+            return frozenMap((Map<?, ?>) value);
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            return list.stream().anyMatch(Objects::isNull)
+                    ? Collections.unmodifiableList(new ArrayList<>(list))
+                    : List.copyOf(list);
+        }
+        if (value instanceof Set) {
+            return frozenSet((Set<?>) value);
+        }
+        if (value.getClass() == ArrayDeque.class) {
+            return new ArrayDeque<>((ArrayDeque<?>) value);
+        }
+        return value;
+    }
+
+    private static Map<?, ?> frozenMap(Map<?, ?> map) {
+        if (map instanceof SortedMap) {
+            return Collections.unmodifiableSortedMap(new TreeMap<>((SortedMap<?, ?>) map));
+        }
+        if (map instanceof LinkedHashMap) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        }
+        if (map.entrySet().stream().anyMatch(e -> e.getKey() == null || e.getValue() == null)) {
+            return Collections.unmodifiableMap(new HashMap<>(map));
+        }
+        return Map.copyOf(map);
+    }
+
+    private static Set<?> frozenSet(Set<?> set) {
+        if (set instanceof SortedSet) {
+            return Collections.unmodifiableSortedSet(new TreeSet<>((SortedSet<?>) set));
+        }
+        if (set instanceof LinkedHashSet) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(set));
+        }
+        if (set.stream().anyMatch(Objects::isNull)) {
+            return Collections.unmodifiableSet(new HashSet<>(set));
+        }
+        return Set.copyOf(set);
+    }
+}
@@ -0,0 +1,304 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.analysis;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import net.hunterstrategy.beantree.processor.AnnotationProcessor;
+
+/**
+ * The on-disk form of analysis results. Each type is stored with a hash of
+ * the bytes of every class in its hierarchy, and the injectors found on it,
+ * in order, by name. The hashes of the analyzer and of every processor used
+ * are stored alongside, so that results are discarded when any of them change.
+ * Loading a type only needs reflection to look up the members it names.
+ */
+final class AnalysisCacheFile {
+    private static final int VERSION = 1;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, JsonNode> types;
+    private final Map<String, String> processors;
+    private final Map<Class<?>, Boolean> verified = new HashMap<>();
+
+    private AnalysisCacheFile(Map<String, JsonNode> types, Map<String, String> processors) {
+        this.types = types;
+        this.processors = processors;
+    }
+
+    static AnalysisCacheFile empty() {
+        return new AnalysisCacheFile(new TreeMap<>(), new TreeMap<>());
+    }
+
+    /**
+     * Read a cache file, or return an empty cache if the file is missing, unreadable,
+     * or was written by a different version of the analyzer.
+     */
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "The path is chosen by the client.")
+    static AnalysisCacheFile read(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return empty();
+        }
+        JsonNode root;
+        try (InputStream in = Files.newInputStream(file)) {
+            root = MAPPER.readTree(in);
+        } catch (IOException e) {
+            return empty();
+        }
+        if (root == null
+                || root.path("version").asInt() != VERSION
+                || !root.path("analyzer").asText().equals(hash(ConfigAnalyzer.class))) {
+            return empty();
+        }
+
+        Map<String, JsonNode> types = new TreeMap<>();
+        root.path("types").fields().forEachRemaining(e -> types.put(e.getKey(), e.getValue()));
+        Map<String, String> processors = new TreeMap<>();
+        root.path("processors")
+                .fields()
+                .forEachRemaining(e -> processors.put(e.getKey(), e.getValue().asText()));
+        return new AnalysisCacheFile(types, processors);
+    }
+
+    int size() {
+        return types.size();
+    }
+
+    /**
+     * Write the cached types, followed by the given analysis results, replacing
+     * the file atomically.
+     */
+    @SuppressFBWarnings(
+            value = {"PATH_TRAVERSAL_IN", "PATH_TRAVERSAL_OUT"},
+            justification = "The path is chosen by the client.")
+    void write(Path file, Map<Class<?>, List<Injector>> analyzed) throws IOException {
+        Map<String, JsonNode> allTypes = new TreeMap<>(types);
+        Map<String, String> allProcessors = new TreeMap<>(processors);
+        analyzed.forEach((type, injectors) -> {
+            JsonNode node = toNode(type, injectors, allProcessors);
+            if (node != null) {
+                allTypes.put(type.getName(), node);
+            }
+        });
+
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("version", VERSION);
+        root.put("analyzer", hash(ConfigAnalyzer.class));
+        allProcessors.forEach(root.putObject("processors")::put);
+        ObjectNode typesNode = root.putObject("types");
+        allTypes.forEach(typesNode::set);
+
+        Path target = file.toAbsolutePath();
+        Path dir = target.getParent();
+        Path name = target.getFileName();
+        if (dir == null || name == null) {
+            throw new IOException("Not a file: " + file);
+        }
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, name.toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                MAPPER.writerWithDefaultPrettyPrinter().writeValue(out, root);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static JsonNode toNode(Class<?> type, List<Injector> injectors, Map<String, String> processors) {
+        String hash = hash(type);
+        if (hash == null) {
+            return null;
+        }
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("hash", hash);
+        ArrayNode list = node.putArray("injectors");
+        for (Injector i : injectors) {
+            Class<?> processor = configTreeAnnotation(i.annotation()).processor();
+            String processorHash = hash(processor);
+            if (processorHash == null) {
+                return null;
+            }
+            processors.put(processor.getName(), processorHash);
+
+            Member m = i.member();
+            ObjectNode entry = list.addObject();
+            entry.put("declaringClass", m.getDeclaringClass().getName());
+            entry.put("name", m.getName());
+            if (m instanceof Method) {
+                entry.put("parameterType", ((Method) m).getParameterTypes()[0].getName());
+            }
+            entry.put("annotation", i.annotation().annotationType().getName());
+            entry.put("processor", processor.getName());
+        }
+        return node;
+    }
+
+    /**
+     * Bind the stored injectors of a type to its members, or return null if
+     * the type is not stored, or has changed since it was.
+     */
+    List<Injector> bind(Class<?> type, DeserializationContext context) {
+        JsonNode node = types.get(type.getName());
+        if (node == null || !node.path("hash").asText().equals(hash(type))) {
+            return null;
+        }
+        List<Injector> injectors = new ArrayList<>();
+        for (JsonNode entry : node.path("injectors")) {
+            Injector i = bind(type, entry, context);
+            if (i == null) {
+                return null;
+            }
+            injectors.add(i);
+        }
+        return injectors;
+    }
+
+    private Injector bind(Class<?> type, JsonNode entry, DeserializationContext context) {
+        Class<?> declaringClass = type;
+        String declaringClassName = entry.path("declaringClass").asText();
+        while (declaringClass != null && !declaringClass.getName().equals(declaringClassName)) {
+            declaringClass = declaringClass.getSuperclass();
+        }
+        if (declaringClass == null) {
+            return null;
+        }
+
+        String name = entry.path("name").asText();
+        Member member = entry.has("parameterType")
+                ? method(declaringClass, name, entry.path("parameterType").asText())
+                : field(declaringClass, name);
+        if (member == null) {
+            return null;
+        }
+
+        Annotation[] annotations =
+                member instanceof Field ? ((Field) member).getAnnotations() : ((Method) member).getAnnotations();
+        String annotationName = entry.path("annotation").asText();
+        for (Annotation a : annotations) {
+            if (!a.annotationType().getName().equals(annotationName)) {
+                continue;
+            }
+            ConfigTreeAnnotation cta = configTreeAnnotation(a);
+            if (cta == null
+                    || !verified(cta.processor(), entry.path("processor").asText())) {
+                return null;
+            }
+            AnnotationProcessor<Annotation> p = context.processorOf(cta);
+            return member instanceof Field
+                    ? new FieldInjector((Field) member, a, p)
+                    : new MethodInjector((Method) member, a, p);
+        }
+        return null;
+    }
+
+    private boolean verified(Class<?> processor, String name) {
+        if (!processor.getName().equals(name)) {
+            return false;
+        }
+        synchronized (verified) {
+            return verified.computeIfAbsent(processor, p -> Objects.equals(processors.get(p.getName()), hash(p)));
+        }
+    }
+
+    private static Field field(Class<?> declaringClass, String name) {
+        try {
+            Field f = declaringClass.getDeclaredField(name);
+            f.setAccessible(true);
+            return f;
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    private static Method method(Class<?> declaringClass, String name, String parameterType) {
+        for (Method m : declaringClass.getDeclaredMethods()) {
+            if (m.getName().equals(name)
+                    && m.getParameterCount() == 1
+                    && m.getParameterTypes()[0].getName().equals(parameterType)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static ConfigTreeAnnotation configTreeAnnotation(Annotation a) {
+        return a.annotationType().getAnnotation(ConfigTreeAnnotation.class);
+    }
+
+    /**
+     * Hash the bytes of every class in the hierarchy of a type that the analyzer
+     * would inspect, or return null if the bytes of any of them are unavailable.
+     */
+    static String hash(Class<?> type) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Class<?> c = type; c != null && !c.getPackageName().startsWith("java"); c = c.getSuperclass()) {
+            byte[] bytes = classBytes(c);
+            if (bytes == null) {
+                return null;
+            }
+            md.update(c.getName().getBytes(StandardCharsets.UTF_8));
+            md.update(bytes);
+        }
+        return Base64.getEncoder().encodeToString(md.digest());
+    }
+
+    private static byte[] classBytes(Class<?> c) {
+        String name = c.getName();
+        String resource = name.substring(name.lastIndexOf('.') + 1) + ".class";
+        try (InputStream in = c.getResourceAsStream(resource)) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
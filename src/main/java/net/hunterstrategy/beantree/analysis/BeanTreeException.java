@@ -24,6 +24,7 @@ package net.hunterstrategy.beantree.analysis;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Member;
+import java.util.List;
 
 public class BeanTreeException extends RuntimeException {
     private static final long serialVersionUID = 1L;
@@ -46,6 +47,16 @@ public class BeanTreeException extends RuntimeException {
         addSuppressed(new AncillaryInformationException("Error with annotation: " + annotation));
     }
 
+    /**
+     * Report every error collected while building a tree.
+     */
+    public static BeanTreeException of(List<BuildError> errors) {
+        String message = String.format("%d error(s) building configuration tree", errors.size());
+        BeanTreeException e = new BeanTreeException(new IllegalStateException(message));
+        errors.forEach(error -> e.addSuppressed(error.exception()));
+        return e;
+    }
+
     @Override
     public synchronized Throwable fillInStackTrace() {
         return null;
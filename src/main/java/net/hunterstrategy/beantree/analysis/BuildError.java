@@ -0,0 +1,69 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.analysis;
+
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * A failure recorded while building a tree that collects its errors rather
+ * than stopping at the first one.
+ */
+public final class BuildError {
+    private final Path file;
+    private final Injector injector;
+    private final BeanTreeException exception;
+
+    BuildError(Path file, Injector injector, BeanTreeException exception) {
+        this.file = file;
+        this.injector = injector;
+        this.exception = exception;
+        exception.addSuppressed(new AncillaryInformationException("Error in file: " + file));
+    }
+
+    /**
+     * The file being processed when the failure occurred.
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * The injection point being processed when the failure occurred, or
+     * empty if the file itself could not be read.
+     */
+    public Optional<Injector> injector() {
+        return Optional.ofNullable(injector);
+    }
+
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "Exceptions are meant to be rethrown.")
+    public BeanTreeException exception() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return exception.getMessage();
+    }
+}
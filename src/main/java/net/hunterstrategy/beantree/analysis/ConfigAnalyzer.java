@@ -36,6 +36,7 @@ import net.hunterstrategy.beantree.processor.AnnotationProcessor;
 
 public class ConfigAnalyzer {
     private static final Comparator<Injector> COMPARATOR = Comparator.comparingInt(PhaseComparison::ordinal)
+            .thenComparing(Comparator.comparingInt(Injector::priority).reversed())
             .thenComparing(Injector::index)
             .thenComparing(TemplateDependencyComparison::templateDependencyOrder);
 
@@ -22,8 +22,10 @@
 package net.hunterstrategy.beantree.analysis;
 
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -35,17 +37,71 @@ public class ConfigAnalyzerCache {
                     Class<? extends AnnotationProcessor<? extends Annotation>>,
                     AnnotationProcessor<? extends Annotation>>
             instances = new ConcurrentHashMap<>();
+    private volatile AnalysisCacheFile persisted = AnalysisCacheFile.empty();
+    private volatile boolean modified;
 
     public List<Injector> injectors(Class<?> clazz, DeserializationContext context) {
         return injectors.compute(clazz, (c, list) -> {
             if (list == null) {
-                return ConfigAnalyzer.analyze(c, context);
+                return loadOrAnalyze(c, context, true);
             }
             ConfigAnalyzer.validateInContext(list, context);
             return list;
         });
     }
 
+    /**
+     * Take the results of analysis from the persisted results, if they are still
+     * current for the type, otherwise analyze it. Persisted results only need to be
+     * validated against the context; annotations were validated when they were analyzed.
+     */
+    private List<Injector> loadOrAnalyze(Class<?> type, DeserializationContext context, boolean validate) {
+        List<Injector> loaded = persisted.bind(type, context);
+        if (loaded != null) {
+            if (validate) {
+                ConfigAnalyzer.validateInContext(loaded, context);
+            }
+            return loaded;
+        }
+        modified = true;
+        return ConfigAnalyzer.analyze(type, context);
+    }
+
+    /**
+     * Load analysis results written by {@link #save(Path)}, so that types whose
+     * classes have not changed since do not need to be analyzed again. Results
+     * that are missing, unreadable, or out of date are ignored.
+     *
+     * @return the number of types with results in the file
+     */
+    public int load(Path file) {
+        persisted = AnalysisCacheFile.read(file);
+        return persisted.size();
+    }
+
+    /**
+     * Write the results of analysis to a file, along with any results loaded
+     * before, if anything has been analyzed since the cache was created or loaded.
+     *
+     * @return whether the file was written
+     */
+    public boolean save(Path file) throws IOException {
+        if (!modified) {
+            return false;
+        }
+        persisted.write(file, injectors);
+        modified = false;
+        return true;
+    }
+
+    /**
+     * Get the injectors of a type without re-validating them against the context,
+     * analyzing the type only if it has not been seen before.
+     */
+    public List<Injector> analyzed(Class<?> clazz, DeserializationContext context) {
+        return injectors.computeIfAbsent(clazz, c -> loadOrAnalyze(c, context, false));
+    }
+
     public AnnotationProcessor<? extends Annotation> processor(ConfigTreeAnnotation cta) {
         return instances.computeIfAbsent(cta.processor(), p -> {
             try {
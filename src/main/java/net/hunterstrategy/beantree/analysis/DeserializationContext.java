@@ -24,38 +24,115 @@ package net.hunterstrategy.beantree.analysis;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.format.DataFormatDetector;
+import com.fasterxml.jackson.core.format.DataFormatMatcher;
+import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Member;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
+import net.hunterstrategy.beantree.BeanIndex;
+import net.hunterstrategy.beantree.BuildCancelledException;
+import net.hunterstrategy.beantree.Cancellation;
+import net.hunterstrategy.beantree.HeaderFilter;
+import net.hunterstrategy.beantree.ParseCache;
+import net.hunterstrategy.beantree.ResourceGovernor;
+import net.hunterstrategy.beantree.Shard;
+import net.hunterstrategy.beantree.SourceLocation;
+import net.hunterstrategy.beantree.StringPool;
 import net.hunterstrategy.beantree.Template;
+import net.hunterstrategy.beantree.analysis.ConfigTreeAnnotation.Phase;
 import net.hunterstrategy.beantree.processor.AnnotationProcessor;
 
 public class DeserializationContext {
     public static final Function<Path, String> FILENAME_NO_EXTENSION = DeserializationContext::fileName;
     public static final Function<Path, String> PARENT_DIR_NAME = DeserializationContext::parentDirName;
+    private static final byte[] NO_DIGEST = new byte[0];
 
     // settings & collaborators
     private final ObjectMapper mapper;
     private final String defaultExtension;
+    private Map<String, ObjectMapper> formats = Collections.emptyMap();
+    private DataFormatDetector detector;
+    private Map<ObjectMapper, ObjectReader> readers = new ConcurrentHashMap<>();
     private final Map<Class<?>, Supplier<?>> factories;
+    private Map<Class<?>, IntFunction<?>> collectionFactories = Collections.emptyMap();
+    private ParseCache parseCache;
+    private ForkJoinPool pool;
+    private StringPool strings;
+    private boolean shareTemplates;
+    private ReadAhead readAhead;
+    private Shard shard;
+    private Consumer<Object> onReady;
+    private Cancellation cancellation;
+    private ResourceGovernor governor;
 
     // deserialization state
     private final ConfigAnalyzerCache cache;
-    private final Deque<Path> stack = new ArrayDeque<>();
-    private final Deque<String> names = new ArrayDeque<>();
-    private final Map<String, TemplateInfo> templates = new ConcurrentHashMap<>();
+    private final Deque<Path> stack;
+    private final Deque<Object> identities;
+    private final Set<Object> openFiles;
+    private final Deque<String> names;
+    private final Deque<SourceLocation> locations;
+    private SourceLocation.Trie locationTrie;
+    private final Templates templates;
+    private final Set<Class<?>> validated;
+    private int collectionDepth;
+    // indexes built for the bean being deserialized
+    private Map<String, BeanIndex<?>> indexes;
+
+    // a file read ahead of its deserialization, to share template content it does not touch
+    private Path prefetchedFile;
+    private JsonNode prefetchedTree;
+    private byte[] prefetchedDigest;
+
+    // errors, only collected when enabled
+    private List<BuildError> errors;
+
+    // provenance state, only tracked when enabled
+    private Map<Object, Provenance> provenance;
+    private final Map<Object, byte[]> seeds = new IdentityHashMap<>();
+    private final Deque<byte[]> fileDigests;
 
     static DeserializationContext defaultContext(String extension) {
         ObjectMapper mapper = new ObjectMapper();
@@ -87,17 +164,433 @@ public class DeserializationContext {
         this.cache = cache;
         this.defaultExtension = defaultExtension;
         this.factories = factories;
+        this.stack = new ArrayDeque<>();
+        this.identities = new ArrayDeque<>();
+        this.openFiles = new HashSet<>();
+        this.names = new ArrayDeque<>();
+        this.locations = new ArrayDeque<>();
+        this.locationTrie = new SourceLocation.Trie();
+        this.templates = new Templates(null);
+        this.validated = ConcurrentHashMap.newKeySet();
+        this.fileDigests = new ArrayDeque<>();
+    }
+
+    /**
+     * Create a context for an independent subtree of the current file. It
+     * shares settings with its parent, sees its parent's templates but keeps
+     * the templates it declares to itself, and starts with a copy of its
+     * parent's position in the tree. Anything else it collects is
+     * merged back into the parent with {@link #join(DeserializationContext)}.
+     */
+    private DeserializationContext(DeserializationContext parent) {
+        this.mapper = parent.mapper;
+        this.cache = parent.cache;
+        this.defaultExtension = parent.defaultExtension;
+        this.formats = parent.formats;
+        this.detector = parent.detector;
+        this.readers = parent.readers;
+        this.factories = parent.factories;
+        this.collectionFactories = parent.collectionFactories;
+        this.parseCache = parent.parseCache;
+        this.pool = parent.pool;
+        this.strings = parent.strings;
+        this.shareTemplates = parent.shareTemplates;
+        this.readAhead = parent.readAhead;
+        this.shard = parent.shard;
+        this.cancellation = parent.cancellation;
+        this.governor = parent.governor;
+        this.collectionDepth = parent.collectionDepth;
+        this.stack = new ArrayDeque<>(parent.stack);
+        this.identities = new ArrayDeque<>(parent.identities);
+        this.openFiles = new HashSet<>(parent.openFiles);
+        this.names = new ArrayDeque<>(parent.names);
+        this.locations = new ArrayDeque<>(parent.locations);
+        this.locationTrie = parent.locationTrie;
+        this.templates = new Templates(parent.templates);
+        this.validated = parent.validated;
+        this.errors = parent.errors == null ? null : new ArrayList<>();
+        this.provenance = parent.provenance == null ? null : new IdentityHashMap<>();
+        this.fileDigests = new ArrayDeque<>(parent.fileDigests);
+    }
+
+    /**
+     * Gather what a fork collected, including the templates it declared, which
+     * are declared here as if the fork's subtree had been loaded on this context.
+     */
+    private void join(DeserializationContext fork) {
+        if (errors != null) {
+            errors.addAll(fork.errors);
+        }
+        if (provenance != null) {
+            provenance.putAll(fork.provenance);
+        }
+        fork.templates.declared().forEach((name, info) -> {
+            if (!templates.declare(name, info)) {
+                fail(duplicateTemplate(name, info.source), info.source);
+            }
+        });
     }
 
     public String getDefaultExtension() {
         return defaultExtension;
     }
 
+    /**
+     * Read files with other extensions than the default with their own mappers,
+     * such as a binary format for generated files. Files with an extension that is
+     * not registered are read with whichever format recognizes their first bytes,
+     * or with the default mapper if none do.
+     *
+     * @param formats mappers by extension, in order of preference after the default
+     */
+    public DeserializationContext formats(Map<String, ObjectMapper> formats) {
+        this.formats = new LinkedHashMap<>(formats);
+        this.formats.remove(defaultExtension);
+        List<JsonFactory> factories = new ArrayList<>();
+        factories.add(mapper.getFactory());
+        this.formats.values().forEach(m -> factories.add(m.getFactory()));
+        this.detector = this.formats.isEmpty() ? null : new DataFormatDetector(factories);
+        return this;
+    }
+
+    /**
+     * The extensions of the files that are read, the default first.
+     */
+    public List<String> extensions() {
+        List<String> extensions = new ArrayList<>(formats.size() + 1);
+        extensions.add(defaultExtension);
+        extensions.addAll(formats.keySet());
+        return extensions;
+    }
+
+    /**
+     * The extensions of the files that are read, as a glob: the default
+     * extension alone, or a group of every extension.
+     */
+    public String extensionGlob() {
+        return formats.isEmpty() ? defaultExtension : "{" + String.join(",", extensions()) + "}";
+    }
+
+    /**
+     * The mapper for a file, by its extension or, failing that, its first bytes.
+     */
+    private ObjectMapper mapperFor(Path file) throws IOException {
+        if (formats.isEmpty()) {
+            return mapper;
+        }
+        String fileName = String.valueOf(file.getFileName());
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot);
+        if (defaultExtension.equals(extension)) {
+            return mapper;
+        }
+        ObjectMapper format = formats.get(extension);
+        if (format != null) {
+            return format;
+        }
+        DataFormatMatcher match;
+        try (InputStream is = open(file)) {
+            match = detector.findFormat(is);
+        }
+        if (!match.hasMatch()) {
+            return mapper;
+        }
+        for (ObjectMapper m : formats.values()) {
+            if (m.getFactory() == match.getMatch()) {
+                return m;
+            }
+        }
+        return mapper;
+    }
+
+    /**
+     * Record the {@link Provenance} of every bean deserialized by this context.
+     */
+    public DeserializationContext recordProvenance() {
+        if (provenance == null) {
+            provenance = new IdentityHashMap<>();
+        }
+        return this;
+    }
+
+    /**
+     * Keep going past beans and collections that fail to load, recording
+     * each failure in {@link #errors()} instead of throwing it.
+     */
+    public DeserializationContext collectErrors() {
+        if (errors == null) {
+            errors = new ArrayList<>();
+        }
+        return this;
+    }
+
+    /**
+     * Get the errors collected so far, or an empty list if errors are not
+     * being collected.
+     */
+    public List<BuildError> errors() {
+        return errors == null ? Collections.emptyList() : Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Load independent subtrees, such as the entries of a collection, in
+     * parallel on the given pool.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The pool is intended to be shared.")
+    public DeserializationContext pool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Get the pool subtrees are loaded on, or null if they are loaded on this thread.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "The pool is intended to be shared.")
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+    /**
+     * Create the collections of bean collections with factories that are
+     * given the number of entries they will hold.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Shared with the builder, like the factories.")
+    public DeserializationContext collectionFactories(Map<Class<?>, IntFunction<?>> collectionFactories) {
+        this.collectionFactories = collectionFactories;
+        return this;
+    }
+
+    /**
+     * Read files through a cache of parsed files.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The cache is intended to be shared.")
+    public DeserializationContext parseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+        return this;
+    }
+
+    /**
+     * Canonicalize names, source file names, and strings read by Jackson through
+     * a pool. Strings read by Jackson are only pooled if the mapper has the
+     * {@link StringPool#jacksonModule()} registered.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The pool is intended to be shared.")
+    public DeserializationContext stringPool(StringPool strings) {
+        this.strings = strings;
+        this.readers = new ConcurrentHashMap<>();
+        this.locationTrie = strings == null ? new SourceLocation.Trie() : new SourceLocation.Trie(strings::intern);
+        return this;
+    }
+
+    /**
+     * Stop loading once the cancellation is cancelled, checking before each
+     * file is loaded or listed.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Shared with the caller, to cancel the build.")
+    public DeserializationContext cancellation(Cancellation cancellation) {
+        this.cancellation = cancellation;
+        return this;
+    }
+
+    /**
+     * Open, list, and read every file through the governor.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Governors are shared between builds.")
+    public DeserializationContext governor(ResourceGovernor governor) {
+        this.governor = governor;
+        return this;
+    }
+
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "Governors are shared between builds.")
+    public ResourceGovernor governor() {
+        return governor;
+    }
+
+    /**
+     * Stop the build if it has been cancelled.
+     *
+     * @param next the file about to be loaded or listed
+     */
+    public void checkCancelled(Path next) {
+        if (cancellation != null) {
+            cancellation.check(next);
+        }
+    }
+
+    /**
+     * Load the root bean in two stages. First its own file, its templates, and
+     * the members with a priority above zero; then the callback is given the
+     * root; then the rest of its members, including those of the post phase.
+     */
+    public DeserializationContext onReady(Consumer<Object> onReady) {
+        this.onReady = onReady;
+        return this;
+    }
+
+    /**
+     * Use the readers of another context, made from the same mappers and string
+     * pool, so that contexts built together make each reader only once. Must be
+     * called after {@link #stringPool(StringPool)}.
+     */
+    public DeserializationContext shareReaders(DeserializationContext other) {
+        this.readers = other.readers;
+        return this;
+    }
+
+    /**
+     * Read files ahead of parsing them: the entries of each collection, and
+     * the files of the {@code Bean}s declared by each file that is parsed.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Shared with forks of this context.")
+    public DeserializationContext readAhead(ReadAhead readAhead) {
+        this.readAhead = readAhead;
+        return this;
+    }
+
+    /**
+     * Only load the entries of outermost collections that belong to the shard.
+     */
+    public DeserializationContext shard(Shard shard) {
+        this.shard = shard;
+        return this;
+    }
+
+    /**
+     * Whether an entry of the collection being loaded should be loaded, given
+     * its bean name. Only entries of collections that are not nested inside
+     * another collection's entries are sharded.
+     */
+    public boolean ownsEntry(String name) {
+        return shard == null || collectionDepth > 0 || shard.owns(name);
+    }
+
+    /**
+     * Load an entry of a collection, so that collections nested inside it
+     * are known to be nested.
+     */
+    public <R> R inCollection(Supplier<R> entry) {
+        collectionDepth++;
+        try {
+            return entry.get();
+        } finally {
+            collectionDepth--;
+        }
+    }
+
+    /**
+     * Whether files are read ahead. Files read through a parse cache are not,
+     * as their reads would never be taken.
+     */
+    private boolean readingAhead() {
+        return readAhead != null && parseCache == null;
+    }
+
+    /**
+     * Schedule files to be read ahead, if reading ahead is enabled.
+     */
+    public void scheduleReads(List<Path> files) {
+        if (readingAhead()) {
+            readAhead.schedule(files);
+        }
+    }
+
+    /**
+     * Stop reading ahead, dropping anything that was read but never parsed.
+     */
+    public void closeReadAhead() {
+        if (readAhead != null) {
+            readAhead.close();
+        }
+    }
+
+    /**
+     * Schedule the single files the injectors of the current file will load.
+     */
+    private void scheduleReads(List<Injector> injectors, Path file) {
+        Path dir = file.getParent();
+        if (dir == null) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        for (Injector i : injectors) {
+            String location = i.processor().location(this, i.annotation(), i);
+            if (location != null && !isGlob(location)) {
+                files.add(dir.resolve(location));
+            }
+        }
+        readAhead.schedule(files);
+    }
+
+    private static boolean isGlob(String location) {
+        for (char c : new char[] {'*', '?', '[', '{'}) {
+            if (location.indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Share the nested objects and collections of a template between its clones,
+     * wherever the file a clone is loaded from does not set them. Shared objects
+     * must be treated as read-only, as changing one changes every clone.
+     */
+    public DeserializationContext shareTemplates() {
+        this.shareTemplates = true;
+        return this;
+    }
+
+    /**
+     * Get the string pool, if strings are being pooled.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "The pool is intended to be shared.")
+    public StringPool stringPool() {
+        return strings;
+    }
+
+    /**
+     * Get the canonical instance of a string, if strings are being pooled.
+     */
+    public String intern(String s) {
+        return strings == null ? s : strings.intern(s);
+    }
+
+    /**
+     * Get the provenance recorded for every bean deserialized so far, or an empty
+     * map if provenance is not being recorded.
+     */
+    public Map<Object, Provenance> provenance() {
+        return provenance == null ? Collections.emptyMap() : Collections.unmodifiableMap(provenance);
+    }
+
     @SuppressWarnings("unchecked")
     public AnnotationProcessor<Annotation> processorOf(ConfigTreeAnnotation cta) {
         return (AnnotationProcessor<Annotation>) this.cache.processor(cta);
     }
 
+    /**
+     * Get the injection points of a type, analyzing it if necessary. Each type
+     * is validated against this context's settings the first time it is seen.
+     *
+     * @throws BeanTreeException if the type's annotations are not valid
+     */
+    public List<Injector> injectors(Class<?> type) {
+        if (validated.contains(type)) {
+            return cache.analyzed(type, this);
+        }
+        List<Injector> injectors = cache.injectors(type, this);
+        validated.add(type);
+        return injectors;
+    }
+
+    /**
+     * Get the injection points of a type, for walking beans that have
+     * already been deserialized.
+     */
+    public List<Injector> analyzedInjectors(Class<?> type) {
+        return cache.analyzed(type, this);
+    }
+
     /**
      * Check whether the target type can be deserialized or not.
      * @param clazz the target type
@@ -136,6 +629,19 @@ public class DeserializationContext {
         }
     }
 
+    /**
+     * Create a collection that is about to be filled with the given number of
+     * entries, with a collection factory if one has been specified for its type,
+     * and otherwise as with {@link #instantiate(Class)}.
+     */
+    public <T> T instantiate(Class<T> type, int size) {
+        IntFunction<?> factory = collectionFactories.get(type);
+        if (factory != null) {
+            return type.cast(factory.apply(size));
+        }
+        return instantiate(type);
+    }
+
     /**
      * Deserialize the given type with the specified configuration file.
      * Use the {@link #instantiate(Class)} method to construct an instance.
@@ -143,6 +649,7 @@ public class DeserializationContext {
      */
     public <T> T deserialize(Class<T> type, Path configurationFile, Function<Path, String> nameFunction) {
         T instance = instantiate(type);
+        seed(instance, NO_DIGEST);
         return deserialize(instance, configurationFile, nameFunction);
     }
 
@@ -163,45 +670,474 @@ public class DeserializationContext {
      * @return the deserialized instance
      */
     public <T> T deserialize(T instance, Path configurationFile, Function<Path, String> nameFunction) {
+        checkCancelled(configurationFile);
+        byte[] seed = seedOf(instance);
         push(configurationFile, nameFunction);
+        Map<String, BeanIndex<?>> outerIndexes = indexes;
+        indexes = null;
+        boolean digested = false;
         try {
             // deserialize file
-            try (InputStream is = Files.newInputStream(configurationFile, StandardOpenOption.READ)) {
-                mapper.readerForUpdating(instance).readValue(is);
+            byte[] fileDigest = null;
+            try {
+                fileDigest = readFile(instance, configurationFile);
+                if (cancellation != null) {
+                    cancellation.loaded();
+                }
+            } catch (Exception e) {
+                fail(e, null);
+            }
+            if (fileDigest != null) {
+                fileDigests.addLast(fileDigest);
+                digested = true;
             }
             // run injectors on type, possibly recursing
-            for (Injector i : cache.injectors(instance.getClass(), this)) {
-                try {
-                    i.inject(this, instance);
-                } catch (BeanTreeException e) {
-                    throw e;
-                } catch (Exception e) {
-                    throw new BeanTreeException(e, i);
+            List<Injector> injectors = Collections.emptyList();
+            try {
+                injectors = injectors(instance.getClass());
+            } catch (RuntimeException e) {
+                fail(e, null);
+            }
+            if (readingAhead()) {
+                scheduleReads(injectors, configurationFile);
+            }
+            List<Injector> deferred = onReady != null && stack.size() == 1 ? new ArrayList<>() : null;
+            for (Injector i : injectors) {
+                if (deferred != null && deferredUntilReady(i)) {
+                    deferred.add(i);
+                    continue;
+                }
+                inject(instance, i);
+            }
+            if (deferred != null) {
+                Consumer<Object> ready = onReady;
+                onReady = null;
+                ready.accept(instance);
+                for (Injector i : deferred) {
+                    inject(instance, i);
                 }
             }
+            if (digested) {
+                recordProvenance(instance, injectors, fileDigests.peekLast(), seed);
+            }
             return instance;
         } catch (BeanTreeException e) {
             throw e;
         } catch (Exception e) {
             throw new BeanTreeException(e);
         } finally {
+            if (digested) {
+                fileDigests.removeLast();
+            }
+            indexes = outerIndexes;
             pop();
         }
     }
 
+    private void inject(Object instance, Injector i) {
+        try {
+            i.inject(this, instance);
+        } catch (Exception e) {
+            fail(e, i);
+        }
+    }
+
+    /**
+     * Whether a member of the root is loaded after the root is ready, in a build
+     * with {@link #onReady(Consumer)}.
+     */
+    public static boolean deferredUntilReady(Injector i) {
+        Phase phase = PhaseComparison.phaseOf(i);
+        return phase == Phase.post || (phase == Phase.main && i.priority() <= 0);
+    }
+
+    /**
+     * Ask a filter whether to load a file, from a parser over the start of the
+     * file. The rest of the file is not read.
+     */
+    public boolean acceptsHeader(HeaderFilter filter, Path file) throws IOException {
+        try (JsonParser parser = mapperFor(file).createParser(open(file))) {
+            return filter.accept(parser);
+        }
+    }
+
+    /**
+     * Make an index available to the rest of the bean being deserialized.
+     */
+    public void registerIndex(BeanIndex<?> index) {
+        if (indexes == null) {
+            indexes = new HashMap<>();
+        }
+        if (indexes.putIfAbsent(index.name(), index) != null) {
+            throw new IllegalStateException("Duplicate index name: " + index.name());
+        }
+    }
+
+    /**
+     * Find an index built for the bean being deserialized.
+     *
+     * @return the index, or null if there is none by that name
+     */
+    public BeanIndex<?> index(String name) {
+        return indexes == null ? null : indexes.get(name);
+    }
+
+    /**
+     * Get a function that reads a property from beans of a type, as Jackson
+     * would serialize it.
+     *
+     * @return the function, or null if the type has no such property
+     */
+    public Function<Object, Object> propertyReader(Class<?> type, String property) {
+        BeanDescription description = mapper.getSerializationConfig().introspect(mapper.constructType(type));
+        for (BeanPropertyDefinition definition : description.findProperties()) {
+            AnnotatedMember accessor = definition.getAccessor();
+            if (accessor != null && definition.getName().equals(property)) {
+                accessor.fixAccess(true);
+                return accessor::getValue;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Throw the failure, or record it and carry on if errors are being collected.
+     */
+    private void fail(Exception e, Injector i) {
+        if (e instanceof BuildCancelledException) {
+            throw (BuildCancelledException) e;
+        }
+        BeanTreeException bte;
+        if (e instanceof BeanTreeException) {
+            bte = (BeanTreeException) e;
+        } else if (i == null) {
+            bte = new BeanTreeException(e);
+        } else {
+            bte = new BeanTreeException(e, i);
+        }
+        if (errors == null) {
+            throw bte;
+        }
+        errors.add(new BuildError(peekFile(), i, bte));
+    }
+
+    /**
+     * Apply a function to each item, where each item is the root of a subtree
+     * that does not depend on the others. With a pool, the items are processed
+     * in parallel, each on its own fork of this context; results, errors,
+     * provenance, and the templates declared in each subtree are still gathered
+     * in item order. Templates declared inside a subtree are not visible to its
+     * siblings while they load in that case, but are to everything after.
+     *
+     * @return the result for each item, in order
+     */
+    public <T, R> List<R> forEachSubtree(List<T> items, BiFunction<DeserializationContext, T, R> function) {
+        List<R> results = new ArrayList<>(items.size());
+        if (pool == null || items.size() < 2) {
+            for (T item : items) {
+                results.add(function.apply(this, item));
+            }
+            return results;
+        }
+
+        List<DeserializationContext> forks = new ArrayList<>(items.size());
+        List<Subtree<T, R>> tasks = new ArrayList<>(items.size());
+        for (T item : items) {
+            DeserializationContext fork = new DeserializationContext(this);
+            forks.add(fork);
+            tasks.add(new Subtree<>(fork, item, function));
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask.invokeAll(tasks);
+            }));
+        }
+        for (int n = 0; n < tasks.size(); n++) {
+            join(forks.get(n));
+            Subtree<T, R> task = tasks.get(n);
+            if (task.failure != null) {
+                throw task.failure;
+            }
+            results.add(task.result);
+        }
+        return results;
+    }
+
+    /**
+     * Holds on to its own failure, since a task rethrows exceptions from other
+     * threads wrapped in a new instance.
+     */
+    private static final class Subtree<T, R> extends ForkJoinTask<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient DeserializationContext context;
+        private final transient T item;
+        private final transient BiFunction<DeserializationContext, T, R> function;
+        private transient R result;
+        private transient RuntimeException failure;
+
+        Subtree(DeserializationContext context, T item, BiFunction<DeserializationContext, T, R> function) {
+            this.context = context;
+            this.item = item;
+            this.function = function;
+        }
+
+        @Override
+        public Void getRawResult() {
+            return null;
+        }
+
+        @Override
+        protected void setRawResult(Void value) {}
+
+        @Override
+        protected boolean exec() {
+            try {
+                result = function.apply(context, item);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Read the file into the instance, returning the digest of the file
+     * contents if provenance is being recorded.
+     */
+    private byte[] readFile(Object instance, Path configurationFile) throws IOException {
+        ObjectMapper format = mapperFor(configurationFile);
+        ObjectReader reader = reader(format).withValueToUpdate(instance);
+        if (configurationFile.equals(prefetchedFile)) {
+            JsonNode tree = prefetchedTree;
+            byte[] digest = prefetchedDigest;
+            clearPrefetched();
+            if (!tree.isMissingNode()) {
+                reader.readValue(tree);
+            }
+            return digest;
+        }
+        if (readingAhead()) {
+            ReadAhead.Buffer buffer = readAhead.take(configurationFile);
+            if (buffer != null) {
+                try {
+                    reader.readValue(buffer.data, 0, buffer.length);
+                    return digest(buffer);
+                } finally {
+                    readAhead.release(buffer);
+                }
+            }
+        }
+        if (parseCache != null) {
+            ParseCache.Parsed parsed = parseCache.read(configurationFile, format, provenance != null, governor);
+            reader.readValue(parsed.tree());
+            return parsed.digest();
+        }
+        if (governor != null) {
+            return governedRead(configurationFile, content -> {
+                reader.readValue(content);
+                return provenance == null ? null : sha256().digest(content);
+            });
+        }
+        if (provenance == null) {
+            try (InputStream is = Files.newInputStream(configurationFile, StandardOpenOption.READ)) {
+                reader.readValue(is);
+            }
+            return null;
+        }
+        byte[] content = Files.readAllBytes(configurationFile);
+        reader.readValue(content);
+        return sha256().digest(content);
+    }
+
+    /**
+     * Read a file through the governor. Reading ahead is paused meanwhile, since
+     * files read ahead could hold the bytes this read waits for until after it.
+     */
+    private <T> T governedRead(Path file, ResourceGovernor.ContentHandler<T> handler) throws IOException {
+        if (!readingAhead()) {
+            return governor.read(file, handler);
+        }
+        readAhead.pause();
+        try {
+            return governor.read(file, handler);
+        } finally {
+            readAhead.resume();
+        }
+    }
+
+    private byte[] digest(ReadAhead.Buffer buffer) {
+        if (provenance == null) {
+            return null;
+        }
+        MessageDigest md = sha256();
+        md.update(buffer.data, 0, buffer.length);
+        return md.digest();
+    }
+
+    private InputStream open(Path file) throws IOException {
+        return governor == null ? Files.newInputStream(file, StandardOpenOption.READ) : governor.newInputStream(file);
+    }
+
+    private void clearPrefetched() {
+        prefetchedFile = null;
+        prefetchedTree = null;
+        prefetchedDigest = null;
+    }
+
+    /**
+     * Parse a file ahead of deserializing it, keeping the result for the
+     * next {@link #readFile(Object, Path)} of the same file.
+     */
+    private JsonNode prefetch(Path file) throws IOException {
+        if (parseCache != null) {
+            ParseCache.Parsed parsed = parseCache.read(file, mapperFor(file), provenance != null, governor);
+            prefetchedTree = parsed.tree();
+            prefetchedDigest = parsed.digest();
+            prefetchedFile = file;
+            return prefetchedTree;
+        }
+        ObjectMapper format = mapperFor(file);
+        ReadAhead.Buffer buffer = readingAhead() ? readAhead.take(file) : null;
+        if (buffer != null) {
+            try {
+                prefetchedTree = format.readTree(buffer.data, 0, buffer.length);
+                prefetchedDigest = digest(buffer);
+            } finally {
+                readAhead.release(buffer);
+            }
+        } else {
+            ResourceGovernor.ContentHandler<JsonNode> parse = content -> {
+                prefetchedDigest = provenance == null ? null : sha256().digest(content);
+                return format.readTree(content);
+            };
+            prefetchedTree = governor == null ? parse.handle(Files.readAllBytes(file)) : governedRead(file, parse);
+        }
+        prefetchedFile = file;
+        return prefetchedTree;
+    }
+
+    private ObjectReader reader() {
+        return reader(mapper);
+    }
+
+    /**
+     * The base reader of a mapper, made once per format.
+     */
+    private ObjectReader reader(ObjectMapper format) {
+        return readers.computeIfAbsent(format, m -> {
+            ObjectReader reader = m.reader();
+            return strings == null ? reader : reader.withAttribute(StringPool.class, strings);
+        });
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void seed(Object instance, byte[] seed) {
+        if (provenance != null) {
+            seeds.put(instance, seed);
+        }
+    }
+
+    /**
+     * Find what the instance was seeded with before its file was read. Instances
+     * created by this context are empty or template clones; anything else was
+     * pre-populated by the file currently being processed.
+     */
+    private byte[] seedOf(Object instance) {
+        if (provenance == null) {
+            return null;
+        }
+        byte[] seed = seeds.remove(instance);
+        if (seed != null) {
+            return seed;
+        }
+        return fileDigests.isEmpty() ? NO_DIGEST : fileDigests.peekLast();
+    }
+
+    private void recordProvenance(Object instance, List<Injector> injectors, byte[] fileDigest, byte[] seed) {
+        MessageDigest md = sha256();
+        md.update(fileDigest);
+        md.update(seed);
+        md.update(peekName().getBytes(StandardCharsets.UTF_8));
+        for (Injector i : injectors) {
+            if (PhaseComparison.phaseOf(i) == Phase.post) {
+                continue; // derived from the file location, not its content
+            }
+            md.update(i.name().getBytes(StandardCharsets.UTF_8));
+            digestValue(md, i.value(instance));
+        }
+        provenance.put(instance, new Provenance(peekLocation(), peekName(), md.digest()));
+    }
+
+    private void digestValue(MessageDigest md, Object value) {
+        if (value instanceof Object[]) {
+            digestValue(md, Arrays.asList((Object[]) value));
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            map.keySet().stream().map(String::valueOf).sorted().forEach(key -> {
+                md.update(key.getBytes(StandardCharsets.UTF_8));
+                digestValue(md, map.get(key));
+            });
+        } else if (value instanceof Collection) {
+            ((Collection<?>) value)
+                    .stream().map(this::digestOf).sorted(Arrays::compare).forEach(md::update);
+        } else {
+            md.update(digestOf(value));
+        }
+    }
+
+    private byte[] digestOf(Object value) {
+        Provenance p = value == null ? null : provenance.get(value);
+        return p == null ? NO_DIGEST : p.rawDigest();
+    }
+
     public void push(Path path, Function<Path, String> nameFunction) {
-        if (stack.contains(path)) {
+        Object identity = fileIdentity(path);
+        if (!openFiles.add(identity)) {
             throw new IllegalStateException("ERROR: cycle detected!");
         }
+        identities.addLast(identity);
         pushFile(path);
-        pushName(nameFunction.apply(path));
+        pushName(intern(nameFunction.apply(path)));
     }
 
     public void pop() {
+        openFiles.remove(identities.removeLast());
         popFile();
         popName();
     }
 
+    /**
+     * Identify the file a path refers to, so that paths reaching the same file
+     * through symbolic links compare equal. On the default file system this is
+     * the file key, which identifies the file itself; other file systems may use
+     * file keys that identify content, so their real path is used instead. Paths
+     * that cannot be resolved are identified by their normalized absolute path.
+     */
+    public static Object fileIdentity(Path path) {
+        try {
+            if (path.getFileSystem() == FileSystems.getDefault()) {
+                Object key =
+                        Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+                if (key != null) {
+                    return key;
+                }
+            }
+            return path.toRealPath();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
     private void pushName(String name) {
         names.addLast(name);
     }
@@ -218,11 +1154,21 @@ public class DeserializationContext {
         return stack.peekLast();
     }
 
+    /**
+     * Get the location of the current file, as a node in the trie of every
+     * file loaded by this context.
+     */
+    public SourceLocation peekLocation() {
+        return locations.peekLast();
+    }
+
     private void pushFile(Path path) {
         stack.addLast(path);
+        locations.addLast(locationTrie.locate(path));
     }
 
     private Path popFile() {
+        locations.removeLast();
         return stack.removeLast();
     }
 
@@ -231,27 +1177,144 @@ public class DeserializationContext {
         info.settings = settings;
         info.source = source;
         info.template = obj;
-        if (templates.putIfAbsent(name, info) != null) {
-            BeanTreeException e = new BeanTreeException("Template has already been defined: " + name, source);
-            throw annotateTemplateError(e, name);
+        info.digest = templateDigest(obj);
+        if (!templates.declare(name, info)) {
+            throw duplicateTemplate(name, source);
         }
     }
 
+    private BeanTreeException duplicateTemplate(String name, Injector source) {
+        BeanTreeException e = new BeanTreeException("Template has already been defined: " + name, source);
+        return annotateTemplateError(e, name);
+    }
+
+    /**
+     * External templates carry the digest of their own file; in-line templates
+     * were read from the file currently being processed.
+     */
+    private byte[] templateDigest(Object template) {
+        if (provenance == null) {
+            return null;
+        }
+        Provenance p = provenance.get(template);
+        if (p != null) {
+            return p.rawDigest();
+        }
+        return fileDigests.isEmpty() ? NO_DIGEST : fileDigests.peekLast();
+    }
+
     public Object getTemplateOrInstantiate(String name, Class<?> type) {
         TemplateInfo info = templates.get(name);
         if (info == null) {
-            return instantiate(type);
+            Object instance = instantiate(type);
+            seed(instance, NO_DIGEST);
+            return instance;
         }
 
         // clone the template with Jackson so every use of it is
         // fresh, and absent state from previous mappings
         try {
-            return mapper.treeToValue(mapper.valueToTree(info.template), info.template.getClass());
+            JsonNode tree = mapper.valueToTree(info.template);
+            Object clone = reader().forType(info.template.getClass()).readValue(tree);
+            seed(clone, info.digest);
+            return clone;
         } catch (Exception e) {
             throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * Like {@link #getTemplateOrInstantiate(String, Class)}, for an instance that
+     * is about to be deserialized from the given file. If templates are shared,
+     * the file is parsed first, and the template's nested objects and collections
+     * that the file does not set are shared with the clone rather than copied.
+     */
+    public Object getTemplateOrInstantiate(String name, Class<?> type, Path file) {
+        TemplateInfo info = templates.get(name);
+        if (info == null || !shareTemplates) {
+            return getTemplateOrInstantiate(name, type);
+        }
+
+        JsonNode entry;
+        try {
+            entry = prefetch(file);
+        } catch (IOException e) {
+            // reported when the file is deserialized
+            clearPrefetched();
+            return getTemplateOrInstantiate(name, type);
+        }
+        try {
+            Object clone = shareClone(info, entry);
+            seed(clone, info.digest);
+            return clone;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Object shareClone(TemplateInfo info, JsonNode entry) throws IOException {
+        JsonNode tree = info.tree;
+        if (tree == null) {
+            tree = mapper.valueToTree(info.template);
+            info.tree = tree;
+        }
+        Map<String, BeanPropertyDefinition> shareable = info.shareable;
+        if (shareable == null) {
+            shareable = shareableProperties(info.template.getClass());
+            info.shareable = shareable;
+        }
+
+        ObjectNode copied = mapper.createObjectNode();
+        List<BeanPropertyDefinition> shared = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> field : tree.properties()) {
+            BeanPropertyDefinition property = shareable.get(field.getKey());
+            if (property != null && field.getValue().isContainerNode() && !entry.has(field.getKey())) {
+                shared.add(property);
+            } else {
+                copied.set(field.getKey(), field.getValue());
+            }
+        }
+        Object clone = reader().forType(info.template.getClass()).readValue(copied);
+        for (BeanPropertyDefinition property : shared) {
+            property.getMutator().setValue(clone, property.getAccessor().getValue(info.template));
+        }
+        return clone;
+    }
+
+    /**
+     * Find the properties of a type that can be both read and written
+     * directly, through a field or a getter and setter. Properties that are
+     * injected into are never shared, as injection would change them for every
+     * entry and for the template.
+     */
+    private Map<String, BeanPropertyDefinition> shareableProperties(Class<?> type) {
+        Set<String> injectedNames = new HashSet<>();
+        Set<Member> injectedMembers = new HashSet<>();
+        for (Injector i : injectors(type)) {
+            injectedNames.add(i.name());
+            injectedMembers.add(i.member());
+        }
+        BeanDescription description = mapper.getSerializationConfig().introspect(mapper.constructType(type));
+        Map<String, BeanPropertyDefinition> shareable = new HashMap<>();
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            AnnotatedMember accessor = property.getAccessor();
+            AnnotatedMember mutator = property.hasSetter() ? property.getSetter() : property.getField();
+            if (accessor == null || mutator == null || mutator != property.getMutator()) {
+                continue;
+            }
+            if (injectedNames.contains(property.getInternalName())
+                    || injectedMembers.contains(mutator.getMember())
+                    || (property.hasField()
+                            && injectedMembers.contains(property.getField().getMember()))) {
+                continue;
+            }
+            accessor.fixAccess(true);
+            mutator.fixAccess(true);
+            shareable.put(property.getName(), property);
+        }
+        return shareable;
+    }
+
     public BeanTreeException annotateTemplateError(BeanTreeException e, String name) {
         TemplateInfo info = templates.get(name);
         if (info != null) {
@@ -266,4 +1329,46 @@ class TemplateInfo {
     Object template;
     Template settings;
     Injector source;
+    byte[] digest;
+
+    // only used when sharing templates
+    volatile JsonNode tree;
+    volatile Map<String, BeanPropertyDefinition> shareable;
+}
+
+/**
+ * The templates visible to a context: those it declared, then those visible to
+ * the context it was forked from.
+ */
+final class Templates {
+    private final Templates parent;
+    private final Map<String, TemplateInfo> declared = new ConcurrentHashMap<>();
+
+    Templates(Templates parent) {
+        this.parent = parent;
+    }
+
+    TemplateInfo get(String name) {
+        for (Templates t = this; t != null; t = t.parent) {
+            TemplateInfo info = t.declared.get(name);
+            if (info != null) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The templates declared in this layer, not including those of its parents.
+     */
+    Map<String, TemplateInfo> declared() {
+        return declared;
+    }
+
+    /**
+     * @return false if a template of the same name is already visible
+     */
+    boolean declare(String name, TemplateInfo info) {
+        return (parent == null || parent.get(name) == null) && declared.putIfAbsent(name, info) == null;
+    }
 }
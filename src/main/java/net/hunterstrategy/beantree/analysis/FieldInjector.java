@@ -74,15 +74,28 @@ class FieldInjector implements Injector {
     }
 
     @Override
-    public void inject(DeserializationContext context, Object target) {
+    public Object value(Object target) {
+        try {
+            return f.get(target);
+        } catch (IllegalAccessException iae) {
+            throw new IllegalStateException(iae);
+        }
+    }
+
+    @Override
+    public void assign(Object target, Object value) {
         try {
-            Object value = processor.instantiate(context, anno, this, f.get(target));
             f.set(target, value);
         } catch (IllegalAccessException iae) {
             throw new IllegalStateException(iae);
         }
     }
 
+    @Override
+    public void inject(DeserializationContext context, Object target) {
+        assign(target, processor.instantiate(context, anno, this, value(target)));
+    }
+
     @Override
     public String toString() {
         return String.format("%s: %s", member().getName(), annotation());
@@ -30,6 +30,17 @@ import net.hunterstrategy.beantree.processor.AnnotationProcessor;
 public interface Injector {
     void inject(DeserializationContext context, Object target);
 
+    /**
+     * Read the current value of the injection point from the target object,
+     * or null if it cannot be read.
+     */
+    Object value(Object target);
+
+    /**
+     * Set the value of the injection point on the target object.
+     */
+    void assign(Object target, Object value);
+
     Annotation annotation();
 
     AnnotationProcessor<Annotation> processor();
@@ -45,4 +56,8 @@ public interface Injector {
     default int index() {
         return processor().indexOf(annotation());
     }
+
+    default int priority() {
+        return processor().priorityOf(annotation());
+    }
 }
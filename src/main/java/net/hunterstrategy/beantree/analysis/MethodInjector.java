@@ -63,7 +63,8 @@ class MethodInjector implements Injector {
         return Introspector.decapitalize(m.getName().substring(3));
     }
 
-    private Object possiblyGet(Object target) {
+    @Override
+    public Object value(Object target) {
         String prefix = "get";
         if (boolean.class.equals(targetType()) || Boolean.class.equals(targetType())) {
             prefix = "is";
@@ -92,9 +93,8 @@ class MethodInjector implements Injector {
     }
 
     @Override
-    public void inject(DeserializationContext context, Object target) {
+    public void assign(Object target, Object value) {
         try {
-            Object value = processor.instantiate(context, anno, this, possiblyGet(target));
             m.invoke(target, value);
         } catch (InvocationTargetException ite) {
             throw ReflectionSupport.handle(ite);
@@ -103,6 +103,11 @@ class MethodInjector implements Injector {
         }
     }
 
+    @Override
+    public void inject(DeserializationContext context, Object target) {
+        assign(target, processor.instantiate(context, anno, this, value(target)));
+    }
+
     @Override
     public String toString() {
         return String.format("%s: %s", member(), annotation());
@@ -27,7 +27,7 @@ import net.hunterstrategy.beantree.analysis.ConfigTreeAnnotation.Phase;
 public final class PhaseComparison {
     private PhaseComparison() {}
 
-    static Phase phaseOf(Injector i) {
+    public static Phase phaseOf(Injector i) {
         ConfigTreeAnnotation cta = i.annotation().annotationType().getAnnotation(ConfigTreeAnnotation.class);
         return cta.phase();
     }
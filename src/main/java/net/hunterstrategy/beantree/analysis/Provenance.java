@@ -0,0 +1,85 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.analysis;
+
+
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import net.hunterstrategy.beantree.SourceLocation;
+
+/**
+ * Where a bean was loaded from, and a digest that summarizes everything
+ * its loaded state was derived from: the bytes of its source file, the
+ * template or parent state it was seeded with, and the digests of every
+ * bean injected beneath it.
+ *
+ * Two beans with equal digests were loaded from identical inputs, so the
+ * subtrees rooted at them are identical as well.
+ */
+public final class Provenance {
+    private final SourceLocation source;
+    private final String name;
+    private final byte[] digest;
+
+    Provenance(SourceLocation source, String name, byte[] digest) {
+        this.source = source;
+        this.name = name;
+        this.digest = digest;
+    }
+
+    public Path source() {
+        return source.toPath();
+    }
+
+    /**
+     * The source file, without resolving it to a path.
+     */
+    public SourceLocation location() {
+        return source;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public byte[] digest() {
+        return Arrays.copyOf(digest, digest.length);
+    }
+
+    byte[] rawDigest() {
+        return digest;
+    }
+
+    /**
+     * Check whether the subtree this provenance describes was derived from
+     * the same inputs as another one.
+     */
+    public boolean sameContent(Provenance other) {
+        return other != null && MessageDigest.isEqual(digest, other.digest);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s)", name, source);
+    }
+}
@@ -0,0 +1,315 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.analysis;
+
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.hunterstrategy.beantree.ResourceGovernor;
+
+/**
+ * Reads files ahead of the thread that parses them, so that reading and parsing
+ * overlap. Files are read in the order they are scheduled, into a pool of
+ * reusable buffers, with at most a fixed number of files read but not yet parsed
+ * at any time. A file that is needed before its read has started is left for the
+ * parsing thread to read itself, and a file that cannot be read is left for the
+ * parsing thread to fail on.
+ *
+ * With a {@link ResourceGovernor}, the content of each file counts against its
+ * byte limit from before it is read until it has been parsed. A file that does
+ * not fit within the limit is left for the parsing thread, and a parsing thread
+ * that reads a file itself {@link #pause() pauses} reading ahead, so that it
+ * never waits for bytes held by files it has yet to reach.
+ */
+public final class ReadAhead {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final AtomicInteger OWN_THREADS = new AtomicInteger();
+
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final ResourceGovernor governor;
+    private final int window;
+    private final Semaphore permits;
+    private final Queue<Read> queue = new ConcurrentLinkedQueue<>();
+    private final Map<Path, Read> reads = new ConcurrentHashMap<>();
+    // reads that hold content nobody has taken yet
+    private final Set<Read> held = ConcurrentHashMap.newKeySet();
+    private final Queue<byte[]> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger paused = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param window the most files to hold in memory before they are parsed
+     * @param executor runs the reads
+     */
+    public ReadAhead(int window, Executor executor) {
+        this(window, executor, null);
+    }
+
+    /**
+     * @param window the most files to hold in memory before they are parsed
+     * @param executor runs the reads
+     * @param governor opens every file read ahead and limits the bytes held, or null
+     */
+    public ReadAhead(int window, Executor executor, ResourceGovernor governor) {
+        this(window, executor, null, governor);
+    }
+
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Governors are shared between builds.")
+    private ReadAhead(int window, Executor executor, ExecutorService ownExecutor, ResourceGovernor governor) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1: " + window);
+        }
+        this.window = window;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.governor = governor;
+        this.permits = new Semaphore(window);
+    }
+
+    /**
+     * Read ahead on daemon threads of its own, which are stopped when reading
+     * ahead is closed, so that slow reads never hold up threads shared with the
+     * rest of the process.
+     *
+     * @param window the most files to hold in memory before they are parsed
+     * @param threads the most files to read at once
+     * @param governor opens every file read ahead and limits the bytes held, or null
+     */
+    public static ReadAhead withOwnThreads(int window, int threads, ResourceGovernor governor) {
+        ThreadPoolExecutor own =
+                new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "beantree-read-ahead-" + OWN_THREADS.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        own.allowCoreThreadTimeOut(true);
+        return new ReadAhead(window, own, own, governor);
+    }
+
+    private static final class Read {
+        final Path file;
+        final CompletableFuture<Buffer> result = new CompletableFuture<>();
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        Read(Path file) {
+            this.file = file;
+        }
+    }
+
+    static final class Buffer {
+        final byte[] data;
+        final int length;
+        final int reserved;
+
+        Buffer(byte[] data, int length, int reserved) {
+            this.data = data;
+            this.length = length;
+            this.reserved = reserved;
+        }
+    }
+
+    /**
+     * Queue files to be read, ignoring any that are already queued.
+     */
+    void schedule(Collection<Path> files) {
+        for (Path file : files) {
+            Read read = new Read(file);
+            if (reads.putIfAbsent(file, read) == null) {
+                queue.add(read);
+            }
+        }
+        pump();
+    }
+
+    private void pump() {
+        while (!closed && paused.get() == 0 && !queue.isEmpty() && permits.tryAcquire()) {
+            Read read = queue.poll();
+            if (read == null || !read.claimed.compareAndSet(false, true)) {
+                permits.release(); // nothing to do, or already taken by the parser
+                continue;
+            }
+            try {
+                executor.execute(() -> load(read));
+            } catch (RejectedExecutionException e) {
+                // closed meanwhile; the parser reads the file if it still needs it
+                read.result.completeExceptionally(e);
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Read a file ahead, and hand its content to whoever takes it.
+     */
+    private void load(Read read) {
+        Buffer buffer;
+        try {
+            buffer = read(read.file);
+        } catch (IOException | RuntimeException e) {
+            read.result.completeExceptionally(e);
+            permits.release();
+            pump();
+            return;
+        }
+        if (buffer == null) {
+            read.result.complete(null); // over the byte limit; wait for a release to try again
+            permits.release();
+            return;
+        }
+        held.add(read);
+        read.result.complete(buffer);
+        if (paused.get() > 0 || closed) {
+            // may have been missed by a pause or close that happened while reading
+            reclaim(read);
+        }
+    }
+
+    /**
+     * Read a file, if its content fits within the governor's byte limit.
+     *
+     * @return the content, or null if it does not fit
+     */
+    private Buffer read(Path file) throws IOException {
+        int reserved = 0;
+        if (governor != null) {
+            reserved = paused.get() > 0 ? -1 : governor.tryReserveBytes(Files.size(file));
+            if (reserved < 0) {
+                return null;
+            }
+        }
+        byte[] data = free.poll();
+        if (data == null) {
+            data = new byte[INITIAL_BUFFER_SIZE];
+        }
+        int length = 0;
+        try (InputStream in = governor == null ? Files.newInputStream(file) : governor.newInputStream(file)) {
+            int n;
+            while ((n = in.read(data, length, data.length - length)) > 0) {
+                length += n;
+                if (length == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+            }
+        } catch (IOException e) {
+            free.offer(data);
+            if (governor != null) {
+                governor.releaseBytes(reserved);
+            }
+            throw e;
+        }
+        return new Buffer(data, length, reserved);
+    }
+
+    /**
+     * Take the content of a file that was read ahead, waiting for it if its read is
+     * in progress. The buffer must be given back with {@link #release(Buffer)} once
+     * it has been parsed.
+     *
+     * @return the content, or null if the file must be read by the caller
+     */
+    Buffer take(Path file) {
+        Read read = reads.remove(file);
+        if (read == null || read.claimed.compareAndSet(false, true)) {
+            return null; // not scheduled, not started, or given back
+        }
+        try {
+            Buffer buffer = read.result.join();
+            held.remove(read);
+            return buffer;
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
+    void release(Buffer buffer) {
+        if (free.size() < window) {
+            free.offer(buffer.data);
+        }
+        if (governor != null) {
+            governor.releaseBytes(buffer.reserved);
+        }
+        permits.release();
+        pump();
+    }
+
+    /**
+     * Give back the content of every file read ahead but not yet taken, and read
+     * nothing more ahead until {@link #resume()}. Files given back are read by
+     * the parser when it reaches them.
+     */
+    void pause() {
+        paused.incrementAndGet();
+        held.forEach(this::reclaim);
+    }
+
+    void resume() {
+        paused.decrementAndGet();
+        pump();
+    }
+
+    /**
+     * Give back the content of a read, unless it has already been taken.
+     */
+    private void reclaim(Read read) {
+        if (reads.remove(read.file, read)) {
+            held.remove(read);
+            release(read.result.join());
+        }
+    }
+
+    /**
+     * Stop reading ahead, and drop anything that was read but not taken.
+     */
+    void close() {
+        closed = true;
+        queue.clear();
+        // reads that never started are claimed so that they never will
+        reads.values().removeIf(read -> read.claimed.compareAndSet(false, true));
+        held.forEach(this::reclaim);
+        free.clear();
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.bundle;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.hunterstrategy.beantree.fs.TreeFileSystem;
+import net.hunterstrategy.beantree.fs.TreeNode;
+
+/**
+ * Read-only file systems over bundles written by {@link BundlePacker}. The
+ * bundle is opened once, and stays open until the file system is closed; files
+ * are read from it as they are opened, in the order they were packed when the
+ * tree is built the way it was planned.
+ *
+ * The file key of every file is the hex SHA-256 digest of its content, so a
+ * {@link net.hunterstrategy.beantree.ParseCache#byFileKey()} shared between
+ * builds of different bundles only parses files whose content changed. Content
+ * is checked against its digest whenever it is read, and a file whose content
+ * does not match fails to open.
+ */
+public final class BundleFileSystems {
+    public static final String SCHEME = "beantree-bundle";
+
+    private BundleFileSystems() {}
+
+    /**
+     * Open a bundle as a file system, with the packed entry file at its root.
+     *
+     * @param bundle the bundle file
+     * @return the file system, which must be closed to close the bundle
+     */
+    public static FileSystem open(Path bundle) throws IOException {
+        return merge(List.of(bundle));
+    }
+
+    /**
+     * Open several bundles as one file system, such as the partitions of a tree
+     * packed with a {@link PartitionPlan}. A file may be packed in more than one
+     * of the bundles, as long as its content is the same in each.
+     *
+     * @param bundles the bundle files
+     * @return the file system, which must be closed to close the bundles
+     */
+    public static FileSystem merge(List<Path> bundles) throws IOException {
+        TreeNode root = TreeNode.directory("", null);
+        Map<String, String> digests = new HashMap<>();
+        List<FileChannel> channels = new ArrayList<>(bundles.size());
+        Closeable resources = () -> close(channels);
+        try {
+            for (Path bundle : bundles) {
+                FileChannel channel = FileChannel.open(bundle, StandardOpenOption.READ);
+                channels.add(channel);
+                index(bundle, channel, root, digests);
+            }
+            return new TreeFileSystem(SCHEME, root, resources);
+        } catch (IOException | RuntimeException e) {
+            try {
+                resources.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private static void close(List<FileChannel> channels) throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void index(Path bundle, FileChannel channel, TreeNode root, Map<String, String> digests)
+            throws IOException {
+        long size = channel.size();
+        if (size < BundleFormat.TRAILER_LENGTH) {
+            throw new IOException("Not a bundle: " + bundle);
+        }
+        ByteBuffer trailer = read(channel, size - BundleFormat.TRAILER_LENGTH, BundleFormat.TRAILER_LENGTH);
+        long indexOffset = trailer.getLong();
+        if (trailer.getInt() != BundleFormat.MAGIC || indexOffset < 0 || indexOffset > size) {
+            throw new IOException("Not a bundle: " + bundle);
+        }
+
+        long indexLength = size - BundleFormat.TRAILER_LENGTH - indexOffset;
+        if (indexLength > Integer.MAX_VALUE) {
+            throw new IOException("Bundle index too large: " + bundle);
+        }
+        ByteBuffer index = read(channel, indexOffset, (int) indexLength);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(index.array()))) {
+            index(bundle, channel, indexOffset, in, root, digests);
+        }
+    }
+
+    private static void index(
+            Path bundle,
+            FileChannel channel,
+            long indexOffset,
+            DataInputStream in,
+            TreeNode root,
+            Map<String, String> digests)
+            throws IOException {
+        int count = in.readInt();
+        for (int n = 0; n < count; n++) {
+            String path = in.readUTF();
+            long offset = in.readLong();
+            int length = in.readInt();
+            byte[] digest = new byte[BundleFormat.DIGEST_LENGTH];
+            in.readFully(digest);
+            if (offset < 0 || length < 0 || offset + length > indexOffset) {
+                throw new IOException(String.format("Corrupt bundle index for %s in %s", path, bundle));
+            }
+            String key = hex(digest);
+            String packed = digests.putIfAbsent(path, key);
+            if (packed != null) {
+                if (!packed.equals(key)) {
+                    throw new IOException(String.format("%s in %s differs from another bundle", path, bundle));
+                }
+                continue;
+            }
+            String[] names = path.split("/");
+            TreeNode parent = root;
+            for (int i = 0; i < names.length - 1; i++) {
+                parent = parent.add(TreeNode.directory(names[i], null));
+            }
+            parent.add(TreeNode.file(
+                    names[names.length - 1],
+                    key,
+                    () -> verify(bundle, path, read(channel, offset, length).array(), digest),
+                    () -> length));
+        }
+    }
+
+    /**
+     * Read part of the bundle, without moving the position of the channel, so
+     * that files can be read from several threads at once.
+     */
+    private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static byte[] verify(Path bundle, String path, byte[] content, byte[] digest) throws IOException {
+        if (!MessageDigest.isEqual(BundlePacker.sha256().digest(content), digest)) {
+            throw new IOException(String.format("Corrupt content for %s in %s", path, bundle));
+        }
+        return content;
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,41 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.bundle;
+
+/**
+ * The layout of a bundle file. File content comes first, in the order the
+ * files were packed, so that a tree is loaded with sequential reads. The index
+ * follows it, then a fixed-size trailer:
+ *
+ * * content: the bytes of every file, back to back
+ * * index: the number of files, then for each file its path (modified UTF-8,
+ *   relative to the bundle root, separated by '/'), the offset and length of
+ *   its content, and the SHA-256 digest of its content
+ * * trailer: the offset of the index, and {@link #MAGIC}
+ */
+final class BundleFormat {
+    static final int MAGIC = 0x42544231; // BTB1
+    static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES;
+    static final int DIGEST_LENGTH = 32;
+
+    private BundleFormat() {}
+}
@@ -0,0 +1,243 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.bundle;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import net.hunterstrategy.beantree.AnalysisPlan;
+import net.hunterstrategy.beantree.Shard;
+
+/**
+ * Write every file a tree would load into a single bundle file, to be read with
+ * {@link BundleFileSystems#open(Path)}. Files are found by following an
+ * {@link AnalysisPlan} from the entry file, so files that the tree does not
+ * refer to are left out, while every file that could be loaded is included:
+ * collections are searched to their depth and filtered by their include and
+ * exclude globs, but entries are packed regardless of any header filters, and
+ * of any shard unless the packer is given one.
+ *
+ * ```java
+ * AnalysisPlan plan = builder.plan(Config.class);
+ * new BundlePacker(plan).pack(Paths.get("/etc/app/config.json"), Paths.get("config.bundle"));
+ * ```
+ */
+public final class BundlePacker {
+    private static final String GLOB_CHARS = "*?[{";
+    /** The index holds file lengths as ints; larger files cannot be read into an array anyway. */
+    private static final long MAX_FILE_SIZE = Integer.MAX_VALUE - 8;
+
+    private final AnalysisPlan plan;
+    private String fromExtension;
+    private ObjectMapper from;
+    private String toExtension;
+    private ObjectMapper to;
+    private Shard shard;
+
+    public BundlePacker(AnalysisPlan plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * Re-encode files with one extension into another format as they are packed,
+     * such as from a text format into a binary one that parses faster. Re-encoded
+     * files take the new extension, so the tree must be built with a mapper for
+     * the new format registered for it, with
+     * {@link net.hunterstrategy.beantree.ConfigurationTreeBuilder#format}.
+     *
+     * @param fromExtension the extension of the files to re-encode
+     * @param from the mapper to read them with
+     * @param toExtension the extension of the re-encoded files
+     * @param to the mapper to write them with
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Mappers are intended to be shared.")
+    public BundlePacker reencode(String fromExtension, ObjectMapper from, String toExtension, ObjectMapper to) {
+        this.fromExtension = fromExtension.startsWith(".") ? fromExtension : "." + fromExtension;
+        this.from = from;
+        this.toExtension = toExtension.startsWith(".") ? toExtension : "." + toExtension;
+        this.to = to;
+        return this;
+    }
+
+    /**
+     * Only pack the entries of outermost collections that belong to the shard,
+     * such as one partition of a {@link PartitionPlan}, along with every file
+     * outside of them.
+     */
+    public BundlePacker shard(Shard shard) {
+        this.shard = shard;
+        return this;
+    }
+
+    /**
+     * Pack the tree loaded from the entry file. Paths in the bundle are relative
+     * to the directory of the entry file, so the entry file is at the root.
+     *
+     * @param entry the file the tree is loaded from
+     * @param bundle the bundle file to write
+     * @return the paths of the packed files within the bundle, in the order they were packed
+     */
+    public List<String> pack(Path entry, Path bundle) throws IOException {
+        Set<Path> files = new LinkedHashSet<>();
+        visit(plan.root(), entry, files, 0);
+        Path root = entry.toAbsolutePath().getParent();
+
+        List<String> paths = new ArrayList<>(files.size());
+        List<Long> offsets = new ArrayList<>(files.size());
+        List<Integer> lengths = new ArrayList<>(files.size());
+        List<byte[]> digests = new ArrayList<>(files.size());
+        MessageDigest md = sha256();
+        try (OutputStream os = Files.newOutputStream(bundle);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            long offset = 0;
+            for (Path file : files) {
+                String path = bundlePath(root, file.toAbsolutePath());
+                if (Files.size(file) > MAX_FILE_SIZE) {
+                    throw new IOException("File too large to pack: " + file);
+                }
+                byte[] content = Files.readAllBytes(file);
+                if (from != null && path.endsWith(fromExtension)) {
+                    content = to.writeValueAsBytes(from.readTree(content));
+                    path = path.substring(0, path.length() - fromExtension.length()) + toExtension;
+                }
+                out.write(content);
+                paths.add(path);
+                offsets.add(offset);
+                lengths.add(content.length);
+                digests.add(md.digest(content));
+                offset += content.length;
+            }
+            out.writeInt(paths.size());
+            for (int n = 0; n < paths.size(); n++) {
+                out.writeUTF(paths.get(n));
+                out.writeLong(offsets.get(n));
+                out.writeInt(lengths.get(n));
+                out.write(digests.get(n));
+            }
+            out.writeLong(offset);
+            out.writeInt(BundleFormat.MAGIC);
+        }
+        return paths;
+    }
+
+    private void visit(Class<?> type, Path file, Set<Path> files, int collectionDepth) throws IOException {
+        if (!files.add(file)) {
+            return;
+        }
+        Path dir = file.getParent();
+        for (AnalysisPlan.Step step : plan.steps(type)) {
+            Optional<String> location = step.location();
+            Optional<Class<?>> beanType = step.beanType();
+            if (location.isEmpty() || beanType.isEmpty()) {
+                continue;
+            }
+            for (Path found : find(dir, step)) {
+                Optional<String> entryName = step.entryName(dir, found);
+                if (entryName.isEmpty()) {
+                    visit(beanType.get(), found, files, collectionDepth);
+                } else if (shard == null || collectionDepth > 0 || shard.owns(entryName.get())) {
+                    visit(beanType.get(), found, files, collectionDepth + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the files a step loads, in a stable order: those its location refers
+     * to, down to its depth, that its filters include.
+     */
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "Locations are validated by analysis.")
+    static List<Path> find(Path dir, AnalysisPlan.Step step) throws IOException {
+        String location = step.location().orElseThrow();
+        if (location.chars().noneMatch(c -> GLOB_CHARS.indexOf(c) > -1)) {
+            Path file = dir.resolve(location);
+            return Files.isRegularFile(file) ? List.of(file) : List.of();
+        }
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        int depth = step.depth();
+        PathMatcher pm = dir.getFileSystem().getPathMatcher(String.format("glob:%s/%s", dir, location));
+        try (Stream<Path> walker = Files.walk(dir, depth)) {
+            return walker.filter(Files::isRegularFile)
+                    .filter(pm::matches)
+                    .filter(f -> step.includes(dir, f))
+                    .sorted(byNames(dir))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Compare paths below a directory name by name, which is the order
+     * collections load their files in.
+     */
+    private static Comparator<Path> byNames(Path dir) {
+        return (a, b) -> {
+            Iterator<Path> x = dir.relativize(a).iterator();
+            Iterator<Path> y = dir.relativize(b).iterator();
+            while (x.hasNext() && y.hasNext()) {
+                int c = x.next().toString().compareTo(y.next().toString());
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return Boolean.compare(x.hasNext(), y.hasNext());
+        };
+    }
+
+    private static String bundlePath(Path root, Path file) {
+        StringBuilder path = new StringBuilder();
+        for (Path element : root.relativize(file)) {
+            if (path.length() > 0) {
+                path.append('/');
+            }
+            path.append(element);
+        }
+        return path.toString();
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.bundle;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import net.hunterstrategy.beantree.AnalysisPlan;
+import net.hunterstrategy.beantree.Shard;
+
+/**
+ * Splits a tree into partitions of about the same size, so that separate
+ * processes can each check one, and pack its files for a later build. Files are
+ * found by following an {@link AnalysisPlan} from the entry file, as
+ * {@link BundlePacker} does, and the entries of outermost collections are
+ * assigned to partitions by name, largest first, weighing each entry by the size
+ * of every file below it. Files outside of outermost collections belong to every
+ * partition.
+ *
+ * Partitions do not produce partial trees to be merged. Beans are arbitrary
+ * classes, which cannot in general be written out once bound and read back, so
+ * a partition's bundle holds the raw content of its files, and the whole tree is
+ * built from the merged bundles in a single process, parsing and binding every
+ * file and holding the whole tree in one heap, as any other build does. What is
+ * spread across processes is checking: each process builds its own partition,
+ * which lists, parses, and binds only the entries that belong to it.
+ *
+ * ```java
+ * // once
+ * PartitionPlan.of(builder.plan(Config.class), entry, 8).write(planFile);
+ * // in process n: check the partition, and pack it
+ * Shard shard = PartitionPlan.read(planFile).shard(n);
+ * List<BuildError> errors = builder.shard(shard).collectErrors(true).buildTree(Config.class, entry).errors();
+ * new BundlePacker(builder.plan(Config.class)).shard(shard).pack(entry, parts.get(n));
+ * // then, if every partition is free of errors, build the whole tree in one process
+ * try (FileSystem fs = BundleFileSystems.merge(parts)) {
+ *     builder.build(Config.class, fs.getPath("/config.json"));
+ * }
+ * ```
+ *
+ * Written plans hold the number of partitions, the weight of each, and the
+ * partition of every entry name: {@link #MAGIC}, the number of partitions,
+ * their weights, the number of names, then each name (modified UTF-8) and its
+ * partition.
+ */
+public final class PartitionPlan {
+    static final int MAGIC = 0x42545031; // BTP1
+
+    private final Map<String, Integer> partitions;
+    private final long[] weights;
+
+    private PartitionPlan(Map<String, Integer> partitions, long[] weights) {
+        this.partitions = partitions;
+        this.weights = weights;
+    }
+
+    /**
+     * Plan partitions of the tree loaded from the entry file.
+     *
+     * @param plan the plan of the tree's root type
+     * @param entry the file the tree is loaded from
+     * @param count the number of partitions
+     */
+    public static PartitionPlan of(AnalysisPlan plan, Path entry, int count) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("Partition count must be at least 1: " + count);
+        }
+        Map<String, Long> entries = new TreeMap<>();
+        weigh(plan, plan.root(), entry, null, new HashSet<>(), entries);
+
+        List<String> names = new ArrayList<>(entries.keySet());
+        names.sort(Comparator.comparing(entries::get).reversed());
+        Map<String, Integer> partitions = new TreeMap<>();
+        long[] weights = new long[count];
+        for (String name : names) {
+            int lightest = 0;
+            for (int n = 1; n < count; n++) {
+                if (weights[n] < weights[lightest]) {
+                    lightest = n;
+                }
+            }
+            partitions.put(name, lightest);
+            weights[lightest] += entries.get(name);
+        }
+        return new PartitionPlan(partitions, weights);
+    }
+
+    /**
+     * Add the size of a file and everything below it to the entry it belongs
+     * to, if it belongs to one.
+     */
+    private static void weigh(
+            AnalysisPlan plan, Class<?> type, Path file, String entry, Set<Path> seen, Map<String, Long> entries)
+            throws IOException {
+        if (!seen.add(file)) {
+            return;
+        }
+        if (entry != null) {
+            entries.merge(entry, Files.size(file), Long::sum);
+        }
+        Path dir = file.getParent();
+        for (AnalysisPlan.Step step : plan.steps(type)) {
+            Optional<String> location = step.location();
+            Optional<Class<?>> beanType = step.beanType();
+            if (location.isEmpty() || beanType.isEmpty()) {
+                continue;
+            }
+            for (Path found : BundlePacker.find(dir, step)) {
+                String owner = entry == null ? step.entryName(dir, found).orElse(null) : entry;
+                weigh(plan, beanType.get(), found, owner, seen, entries);
+            }
+        }
+    }
+
+    /**
+     * Read a plan written by {@link #write(Path)}.
+     */
+    public static PartitionPlan read(Path file) throws IOException {
+        try (InputStream is = Files.newInputStream(file);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a partition plan: " + file);
+            }
+            long[] weights = new long[in.readInt()];
+            for (int n = 0; n < weights.length; n++) {
+                weights[n] = in.readLong();
+            }
+            Map<String, Integer> partitions = new TreeMap<>();
+            int names = in.readInt();
+            for (int n = 0; n < names; n++) {
+                String name = in.readUTF();
+                int partition = in.readInt();
+                if (partition < 0 || partition >= weights.length) {
+                    throw new IOException(String.format("Corrupt partition plan for %s in %s", name, file));
+                }
+                partitions.put(name, partition);
+            }
+            return new PartitionPlan(partitions, weights);
+        }
+    }
+
+    /**
+     * Write the plan, so that every process uses the same partitions without
+     * planning them again.
+     */
+    public void write(Path file) throws IOException {
+        try (OutputStream os = Files.newOutputStream(file);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            out.writeInt(MAGIC);
+            out.writeInt(weights.length);
+            for (long weight : weights) {
+                out.writeLong(weight);
+            }
+            out.writeInt(partitions.size());
+            for (Map.Entry<String, Integer> e : partitions.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue());
+            }
+        }
+    }
+
+    /**
+     * The number of partitions.
+     */
+    public int count() {
+        return weights.length;
+    }
+
+    /**
+     * The size in bytes of the entries assigned to a partition.
+     */
+    public long weight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * The partition of the entries with the given name. Names that were not
+     * planned, such as entries added since, are assigned by
+     * {@link String#hashCode()}.
+     */
+    public int partitionOf(String name) {
+        Integer partition = partitions.get(name);
+        return partition == null ? Math.floorMod(name.hashCode(), weights.length) : partition;
+    }
+
+    /**
+     * Select one partition, to build or pack it.
+     *
+     * @param index the partition, from 0 to {@code count() - 1}
+     */
+    public Shard shard(int index) {
+        return Shard.of(index, weights.length, this::partitionOf);
+    }
+}
@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.fs;
+
+/**
+ * Translate glob expressions into regular expressions, following the rules of
+ * {@link java.nio.file.FileSystem#getPathMatcher(String)}.
+ */
+final class Globs {
+    private static final String REGEX_META = ".^$+|()[]{}\\";
+
+    private Globs() {}
+
+    static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        boolean inGroup = false;
+        boolean inClass = false;
+        char previous = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '/' && previous == '/') {
+                continue; // collapse repeated separators
+            }
+            previous = c;
+            if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                    regex.append("]]");
+                } else if (c == '!' && glob.charAt(i - 1) == '[') {
+                    regex.append('^');
+                } else if (c == '\\' || c == '[' || c == '^') {
+                    regex.append('\\').append(c);
+                } else {
+                    regex.append(c);
+                }
+                continue;
+            }
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    inClass = true;
+                    regex.append("[[^/]&&[");
+                    break;
+                case '{':
+                    inGroup = true;
+                    regex.append("(?:");
+                    break;
+                case '}':
+                    inGroup = false;
+                    regex.append(')');
+                    break;
+                case ',':
+                    regex.append(inGroup ? "|" : ",");
+                    break;
+                case '\\':
+                    if (i + 1 < glob.length()) {
+                        i++;
+                        regex.append(quote(glob.charAt(i)));
+                    }
+                    break;
+                default:
+                    regex.append(quote(c));
+            }
+        }
+        return regex.toString();
+    }
+
+    private static String quote(char c) {
+        return REGEX_META.indexOf(c) > -1 ? "\\" + c : String.valueOf(c);
+    }
+}
@@ -0,0 +1,134 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.fs;
+
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A file or directory in a {@link TreeFileSystem}. Directories hold their
+ * children by name; files know how to load their content, which is only
+ * done when the file is opened.
+ */
+public final class TreeNode {
+    /**
+     * Load the content of a file.
+     */
+    @FunctionalInterface
+    public static interface Content {
+        byte[] load() throws IOException;
+    }
+
+    /**
+     * Compute the size of a file without loading it.
+     */
+    @FunctionalInterface
+    public static interface Size {
+        long compute() throws IOException;
+    }
+
+    private final String name;
+    private final Object fileKey;
+    private final Map<String, TreeNode> children;
+    private final Content content;
+    private final Size size;
+
+    private TreeNode(String name, Object fileKey, Map<String, TreeNode> children, Content content, Size size) {
+        this.name = name;
+        this.fileKey = fileKey;
+        this.children = children;
+        this.content = content;
+        this.size = size;
+    }
+
+    /**
+     * Create a directory node. Children are added with {@link #add(TreeNode)}.
+     *
+     * @param name the name of the directory, empty for the root
+     * @param fileKey the identity of the directory, or null
+     */
+    public static TreeNode directory(String name, Object fileKey) {
+        return new TreeNode(name, fileKey, new TreeMap<>(), null, () -> 0L);
+    }
+
+    /**
+     * Create a file node.
+     *
+     * @param name the name of the file
+     * @param fileKey the identity of the file content, or null. File systems whose
+     *     keys identify content (rather than location) allow
+     *     {@link net.hunterstrategy.beantree.ParseCache#byFileKey()} to be used.
+     * @param content loads the content of the file
+     * @param size computes the size of the file
+     */
+    public static TreeNode file(String name, Object fileKey, Content content, Size size) {
+        return new TreeNode(name, fileKey, null, content, size);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Object fileKey() {
+        return fileKey;
+    }
+
+    public boolean isDirectory() {
+        return children != null;
+    }
+
+    /**
+     * Add a child to this directory, returning the child. If a directory of the
+     * same name already exists, the existing directory is returned instead.
+     */
+    public TreeNode add(TreeNode child) {
+        if (!isDirectory()) {
+            throw new IllegalStateException("Not a directory: " + name);
+        }
+        TreeNode existing = children.get(child.name);
+        if (existing != null && existing.isDirectory() && child.isDirectory()) {
+            return existing;
+        }
+        children.put(child.name, child);
+        return child;
+    }
+
+    TreeNode child(String childName) {
+        return isDirectory() ? children.get(childName) : null;
+    }
+
+    Collection<TreeNode> children() {
+        return isDirectory() ? Collections.unmodifiableCollection(children.values()) : Collections.emptyList();
+    }
+
+    byte[] load() throws IOException {
+        return content.load();
+    }
+
+    long size() throws IOException {
+        return size.compute();
+    }
+}
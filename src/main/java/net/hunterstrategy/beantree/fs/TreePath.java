@@ -0,0 +1,236 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.fs;
+
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A path in a {@link TreeFileSystem}, stored as its name elements.
+ */
+final class TreePath implements Path {
+    private final TreeFileSystem fs;
+    private final boolean absolute;
+    private final List<String> names;
+
+    TreePath(TreeFileSystem fs, boolean absolute, List<String> names) {
+        this.fs = fs;
+        this.absolute = absolute;
+        this.names = names;
+    }
+
+    static TreePath parse(TreeFileSystem fs, String path) {
+        List<String> names = new ArrayList<>();
+        for (String name : path.split("/")) {
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return new TreePath(fs, path.startsWith("/"), names);
+    }
+
+    private static TreePath cast(Path p) {
+        if (!(p instanceof TreePath)) {
+            throw new ProviderMismatchException();
+        }
+        return (TreePath) p;
+    }
+
+    List<String> names() {
+        return names;
+    }
+
+    @Override
+    public TreeFileSystem getFileSystem() {
+        return fs;
+    }
+
+    @Override
+    public boolean isAbsolute() {
+        return absolute;
+    }
+
+    @Override
+    public Path getRoot() {
+        return absolute ? new TreePath(fs, true, List.of()) : null;
+    }
+
+    @Override
+    public Path getFileName() {
+        return names.isEmpty() ? null : new TreePath(fs, false, List.of(names.get(names.size() - 1)));
+    }
+
+    @Override
+    public Path getParent() {
+        if (names.isEmpty() || (!absolute && names.size() == 1)) {
+            return null;
+        }
+        return new TreePath(fs, absolute, names.subList(0, names.size() - 1));
+    }
+
+    @Override
+    public int getNameCount() {
+        return names.size();
+    }
+
+    @Override
+    public Path getName(int index) {
+        return new TreePath(fs, false, List.of(names.get(index)));
+    }
+
+    @Override
+    public Path subpath(int beginIndex, int endIndex) {
+        return new TreePath(fs, false, names.subList(beginIndex, endIndex));
+    }
+
+    @Override
+    public boolean startsWith(Path other) {
+        if (!(other instanceof TreePath)) {
+            return false;
+        }
+        TreePath o = (TreePath) other;
+        return o.fs == fs
+                && o.absolute == absolute
+                && o.names.size() <= names.size()
+                && names.subList(0, o.names.size()).equals(o.names);
+    }
+
+    @Override
+    public boolean endsWith(Path other) {
+        if (!(other instanceof TreePath)) {
+            return false;
+        }
+        TreePath o = (TreePath) other;
+        if (o.absolute) {
+            return equals(o);
+        }
+        int offset = names.size() - o.names.size();
+        return o.fs == fs && offset >= 0 && names.subList(offset, names.size()).equals(o.names);
+    }
+
+    @Override
+    public Path normalize() {
+        List<String> normal = new ArrayList<>();
+        for (String name : names) {
+            if (".".equals(name)) {
+                continue;
+            }
+            if ("..".equals(name) && !normal.isEmpty() && !"..".equals(normal.get(normal.size() - 1))) {
+                normal.remove(normal.size() - 1);
+            } else if (!("..".equals(name) && absolute)) {
+                normal.add(name);
+            }
+        }
+        return new TreePath(fs, absolute, normal);
+    }
+
+    @Override
+    public Path resolve(Path other) {
+        TreePath o = cast(other);
+        if (o.absolute) {
+            return o;
+        }
+        List<String> resolved = new ArrayList<>(names);
+        resolved.addAll(o.names);
+        return new TreePath(fs, absolute, resolved);
+    }
+
+    @Override
+    public Path relativize(Path other) {
+        TreePath o = cast(other);
+        if (o.absolute != absolute) {
+            throw new IllegalArgumentException("Cannot relativize absolute and relative paths.");
+        }
+        int common = 0;
+        while (common < names.size()
+                && common < o.names.size()
+                && names.get(common).equals(o.names.get(common))) {
+            common++;
+        }
+        List<String> relative = new ArrayList<>();
+        for (int i = common; i < names.size(); i++) {
+            relative.add("..");
+        }
+        relative.addAll(o.names.subList(common, o.names.size()));
+        return new TreePath(fs, false, relative);
+    }
+
+    @Override
+    public URI toUri() {
+        return URI.create(String.format("%s:%s", fs.provider().getScheme(), toAbsolutePath()));
+    }
+
+    @Override
+    public Path toAbsolutePath() {
+        return absolute ? this : new TreePath(fs, true, names);
+    }
+
+    @Override
+    public Path toRealPath(LinkOption... options) throws IOException {
+        TreePath real = (TreePath) toAbsolutePath().normalize();
+        if (fs.lookup(real) == null) {
+            throw new NoSuchFileException(toString());
+        }
+        return real;
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int compareTo(Path other) {
+        return toString().compareTo(cast(other).toString());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof TreePath)) {
+            return false;
+        }
+        TreePath o = (TreePath) obj;
+        return o.fs == fs && o.absolute == absolute && o.names.equals(names);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new Object[] {absolute, names});
+    }
+
+    @Override
+    public String toString() {
+        String joined = String.join("/", names);
+        return absolute ? "/" + joined : joined;
+    }
+}
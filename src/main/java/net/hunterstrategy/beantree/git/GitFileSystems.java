@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.git;
+
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import net.hunterstrategy.beantree.fs.TreeFileSystem;
+import net.hunterstrategy.beantree.fs.TreeNode;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Read-only file systems over the tree of a commit in a local git repository.
+ * This requires JGit (`org.eclipse.jgit`), which is an optional dependency of
+ * this module.
+ *
+ * The file key of every file is the object id of its blob, and the file key
+ * of every directory is the object id of its tree. Because object ids
+ * identify content, a {@link net.hunterstrategy.beantree.ParseCache#byFileKey()}
+ * shared between builds of different commits only parses files whose content
+ * changed between them.
+ */
+public final class GitFileSystems {
+    public static final String SCHEME = "gittree";
+
+    private GitFileSystems() {}
+
+    /**
+     * Open the tree of a commit as a file system.
+     *
+     * @param gitDir the git directory: a bare repository, or the `.git` directory
+     *     of a working copy
+     * @param revision anything that resolves to a commit, such as a branch name,
+     *     tag, or object id
+     * @return the file system, which must be closed to release the repository
+     */
+    public static FileSystem open(Path gitDir, String revision) throws IOException {
+        Repository repository = new FileRepositoryBuilder()
+                .setGitDir(gitDir.toFile())
+                .setMustExist(true)
+                .build();
+        try {
+            ObjectId commitId = repository.resolve(revision);
+            if (commitId == null) {
+                throw new NoSuchFileException(String.format("%s: no such revision %s", gitDir, revision));
+            }
+            TreeNode root = index(repository, commitId);
+            return new TreeFileSystem(SCHEME, root, repository::close);
+        } catch (IOException | RuntimeException e) {
+            repository.close();
+            throw e;
+        }
+    }
+
+    private static TreeNode index(Repository repository, ObjectId commitId) throws IOException {
+        try (RevWalk revWalk = new RevWalk(repository);
+                TreeWalk treeWalk = new TreeWalk(repository)) {
+            RevCommit commit = revWalk.parseCommit(commitId);
+            TreeNode root = TreeNode.directory("", commit.getTree().getId());
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(false);
+            while (treeWalk.next()) {
+                TreeNode parent = parentOf(root, treeWalk.getPathString());
+                ObjectId id = treeWalk.getObjectId(0);
+                FileMode mode = treeWalk.getFileMode(0);
+                if (treeWalk.isSubtree()) {
+                    parent.add(TreeNode.directory(treeWalk.getNameString(), id));
+                    treeWalk.enterSubtree();
+                } else if ((mode.getBits() & FileMode.TYPE_MASK) == FileMode.TYPE_FILE) {
+                    parent.add(TreeNode.file(
+                            treeWalk.getNameString(), id, () -> load(repository, id), () -> size(repository, id)));
+                }
+                // symbolic links and submodules are not represented
+            }
+            return root;
+        }
+    }
+
+    private static TreeNode parentOf(TreeNode root, String path) {
+        TreeNode node = root;
+        String[] names = path.split("/");
+        for (int i = 0; i < names.length - 1; i++) {
+            node = node.add(TreeNode.directory(names[i], null));
+        }
+        return node;
+    }
+
+    private static byte[] load(Repository repository, ObjectId id) throws IOException {
+        return repository.open(id, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+    }
+
+    private static long size(Repository repository, ObjectId id) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            return reader.getObjectSize(id, Constants.OBJ_BLOB);
+        }
+    }
+}
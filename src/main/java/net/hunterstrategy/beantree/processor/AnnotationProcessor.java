@@ -100,10 +100,65 @@ public interface AnnotationProcessor<T extends Annotation> {
         return 0;
     }
 
+    /**
+     * Compute the priority of this annotation. Higher priorities are processed first.
+     */
+    default int priorityOf(T annotation) {
+        return 0;
+    }
+
     default String templateName(String annotatedValue, Injector i) {
         return annotatedValue.isBlank() ? i.name() : annotatedValue;
     }
 
+    /**
+     * Describe where this annotation loads its bean from, relative to the directory
+     * of the file being processed, without touching the file system. This is a file
+     * name or a glob, or null if the annotation does not load a file.
+     */
+    default String location(DeserializationContext context, T annotation, Injector i) {
+        return null;
+    }
+
+    /**
+     * How many directories deep a {@link #location} that is a glob is searched,
+     * where files in the directory of the file being processed are at depth 1.
+     */
+    default int locationDepth(T annotation, Injector i, String location) {
+        return location.contains("**") ? Integer.MAX_VALUE : location.split("/").length;
+    }
+
+    /**
+     * Whether a file found at this annotation's {@link #location} is loaded,
+     * given the filters of the annotation that do not need to read the file.
+     *
+     * @param start the directory of the file being processed
+     * @param file the file found
+     */
+    default boolean includes(T annotation, Injector i, Path start, Path file) {
+        return true;
+    }
+
+    /**
+     * Name the collection entry that would be loaded from a file found at this
+     * annotation's {@link #location}, or null if the annotation does not load a
+     * collection.
+     *
+     * @param start the directory of the file being processed
+     * @param file the file of the entry
+     */
+    default String entryName(T annotation, Injector i, Path start, Path file) {
+        return null;
+    }
+
+    /**
+     * The name of the template this annotation declares or looks up, or null if
+     * it has nothing to do with templates.
+     */
+    default String template(T annotation, Injector i) {
+        return null;
+    }
+
     /**
      * Create the object to be injected by the Injector.
      *
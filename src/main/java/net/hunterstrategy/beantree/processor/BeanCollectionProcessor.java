@@ -24,24 +24,37 @@ package net.hunterstrategy.beantree.processor;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import net.hunterstrategy.beantree.BeanCollection;
 import net.hunterstrategy.beantree.BeanCollection.Mapping;
+import net.hunterstrategy.beantree.BeanIndex;
+import net.hunterstrategy.beantree.HeaderFilter;
+import net.hunterstrategy.beantree.Index;
 import net.hunterstrategy.beantree.analysis.BeanTreeException;
 import net.hunterstrategy.beantree.analysis.DeserializationContext;
 import net.hunterstrategy.beantree.analysis.Injector;
@@ -56,11 +69,39 @@ public class BeanCollectionProcessor implements AnnotationProcessor<BeanCollecti
         return annotation.index();
     }
 
+    @Override
+    public int priorityOf(BeanCollection annotation) {
+        return annotation.priority();
+    }
+
     @Override
     @SuppressFBWarnings(
             value = "PATH_TRAVERSAL_IN",
             justification = "Supplied only at compile time and validated at runtime.")
     public void validateAnnotation(BeanCollection annotation) {
+        Set<String> indexNames = new HashSet<>();
+        for (Index index : annotation.indexes()) {
+            if (index.name().isBlank() || index.property().isBlank()) {
+                throw new IllegalArgumentException("Index name and property cannot be blank.");
+            }
+            if (!indexNames.add(index.name())) {
+                throw new IllegalArgumentException("Duplicate index name: " + index.name());
+            }
+        }
+
+        if (annotation.mapping() == Mapping.RECURSIVE && annotation.depth() < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + annotation.depth());
+        }
+
+        FileSystem fs = FileSystems.getDefault();
+        Stream.concat(Arrays.stream(annotation.include()), Arrays.stream(annotation.exclude()))
+                .forEach(pattern -> fs.getPathMatcher("glob:" + pattern));
+        Class<? extends HeaderFilter> filter = annotation.filter();
+        if (!HeaderFilter.class.equals(filter)
+                && (filter.isInterface() || Modifier.isAbstract(filter.getModifiers()))) {
+            throw new IllegalArgumentException("Filter must be a concrete class: " + filter);
+        }
+
         if (annotation.value().isBlank()) {
             return; // cannot do further validation
         }
@@ -96,8 +137,8 @@ public class BeanCollectionProcessor implements AnnotationProcessor<BeanCollecti
 
     @Override
     public void validateInContext(DeserializationContext context, Injector i, BeanCollection annotation) {
-        if (!isSupportedCollectionType(i.targetType())) {
-            throw new IllegalArgumentException("Target type must be Map, List, Queue, or Set.");
+        if (!i.targetType().isArray() && !isSupportedCollectionType(i.targetType())) {
+            throw new IllegalArgumentException("Target type must be Map, List, Queue, Set, or an array.");
         }
 
         possiblyAssertStringKeyInMap(i);
@@ -108,12 +149,25 @@ public class BeanCollectionProcessor implements AnnotationProcessor<BeanCollecti
             throw new IllegalArgumentException("Must specify deserialization target type.");
         }
 
+        if (i.targetType().isArray() && !i.targetType().getComponentType().isAssignableFrom(deserializationType)) {
+            throw new IllegalArgumentException(String.format(
+                    "Type %s not assignable to array of: %s",
+                    deserializationType, i.targetType().getComponentType()));
+        }
+
         context.assertCanDeserialize(deserializationType, context);
+
+        for (Index index : annotation.indexes()) {
+            if (context.propertyReader(deserializationType, index.property()) == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Index %s: no property %s on %s", index.name(), index.property(), deserializationType));
+            }
+        }
     }
 
     void possiblyAssertStringKeyInMap(Injector i) {
         Class<?> collectionType = collectionType(i.targetType());
-        if (!Map.class.isAssignableFrom(collectionType)) {
+        if (collectionType == null || !Map.class.isAssignableFrom(collectionType)) {
             return;
         }
         Type[] arguments = getDeserializationGenericTypes(i);
@@ -142,6 +196,9 @@ public class BeanCollectionProcessor implements AnnotationProcessor<BeanCollecti
     @Override
     public Class<?> getTargetDeserializationType(BeanCollection annotation, Injector i) {
         Class<?> targetType = annotation.type();
+        if (i.targetType().isArray()) {
+            return void.class.equals(targetType) ? i.targetType().getComponentType() : targetType;
+        }
 
         /*
          * Attempt to read generic type.
@@ -166,10 +223,6 @@ public class BeanCollectionProcessor implements AnnotationProcessor<BeanCollecti
 
     @Override
     public Object instantiate(DeserializationContext context, BeanCollection annotation, Injector i, Object target) {
-        if (target == null) {
-            target = context.instantiate(i.targetType());
-        }
-
         Path start = context.peekFile();
         if (!Files.isDirectory(start)) {
             start = start.getParent();
@@ -179,28 +232,204 @@ public class BeanCollectionProcessor implements AnnotationProcessor<BeanCollecti
         }
 
         String glob = String.format("glob:%s/%s", start, toGlob(context, annotation, i));
-        Function<Path, String> namingStrategy = nameFunction(annotation);
+        Path dir = collectionDir(annotation, i, start);
+        Function<Path, String> namingStrategy = nameFunction(annotation, dir);
         Class<?> deserializationType = getTargetDeserializationType(annotation, i);
         PathMatcher pm = start.getFileSystem().getPathMatcher(glob);
 
         String templateName = templateName(annotation.template(), i);
         assertTemplateIsDeserializable(context, templateName, deserializationType, i);
 
-        try (Stream<Path> walker = Files.walk(start, 2)) { // 2 = subdir and file, is max recursion extent
-            Map<String, Object> results = walker.filter(Files::isRegularFile)
-                    .filter(pm::matches)
-                    .collect(Collectors.toMap(namingStrategy, file -> {
-                        Object template = context.getTemplateOrInstantiate(templateName, deserializationType);
-                        return context.deserialize(template, file, namingStrategy);
-                    }));
-            applyResults(target, results);
+        Predicate<String> names = nameFilter(start.getFileSystem(), annotation);
+        HeaderFilter header =
+                HeaderFilter.class.equals(annotation.filter()) ? null : context.instantiate(annotation.filter());
+
+        List<Path> listed;
+        try {
+            listed = DirectoryWalk.walk(
+                    dir,
+                    depth(annotation),
+                    f -> {
+                        context.checkCancelled(f);
+                        if (!pm.matches(f)) {
+                            return false;
+                        }
+                        String name = namingStrategy.apply(f);
+                        return names.test(name) && context.ownsEntry(name) && accepts(context, header, f);
+                    },
+                    context.pool(),
+                    context.governor());
         } catch (IOException ioe) {
             throw new BeanTreeException(ioe, i);
         }
+        List<Path> files = context.extensions().size() > 1 ? preferredFormats(context, listed, namingStrategy) : listed;
+
+        context.scheduleReads(files);
+
+        Index[] indexes = annotation.indexes();
+        List<Function<Object, Object>> keyReaders = new ArrayList<>(indexes.length);
+        for (Index index : indexes) {
+            keyReaders.add(context.propertyReader(deserializationType, index.property()));
+        }
+
+        // each file is the root of an independent subtree; index keys are read as each is loaded
+        List<Entry> entries = context.forEachSubtree(
+                files,
+                (ctx, file) -> ctx.inCollection(() -> {
+                    Object template = ctx.getTemplateOrInstantiate(templateName, deserializationType, file);
+                    return new Entry(ctx.deserialize(template, file, namingStrategy), keyReaders);
+                }));
+        // in the order the files were listed, sorted by path, which is also the order of arrays
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (int n = 0; n < files.size(); n++) {
+            results.put(context.intern(namingStrategy.apply(files.get(n))), entries.get(n).bean);
+        }
+
+        for (int n = 0; n < indexes.length; n++) {
+            context.registerIndex(index(indexes[n], n, entries, i));
+        }
+
+        if (i.targetType().isArray()) {
+            return arrayOf(i.targetType().getComponentType(), target, results.values());
+        }
+        if (target == null) {
+            target = context.instantiate(i.targetType(), results.size());
+        }
+        applyResults(target, results);
 
         return target;
     }
 
+    /**
+     * Keep one file per bean name, where a bean has files in several formats,
+     * preferring the format registered first.
+     */
+    private List<Path> preferredFormats(
+            DeserializationContext context, List<Path> files, Function<Path, String> namingStrategy) {
+        List<String> extensions = context.extensions();
+        ToIntFunction<Path> rank = f -> {
+            for (int n = 0; n < extensions.size(); n++) {
+                if (f.toString().endsWith(extensions.get(n))) {
+                    return n;
+                }
+            }
+            return extensions.size();
+        };
+        Map<String, Path> byName = new LinkedHashMap<>();
+        for (Path file : files) {
+            byName.merge(namingStrategy.apply(file), file, (a, b) -> rank.applyAsInt(b) < rank.applyAsInt(a) ? b : a);
+        }
+        return byName.size() == files.size() ? files : new ArrayList<>(byName.values());
+    }
+
+    /**
+     * Match entry names against the include and exclude globs.
+     */
+    private Predicate<String> nameFilter(FileSystem fs, BeanCollection annotation) {
+        List<PathMatcher> include = matchers(fs, annotation.include());
+        List<PathMatcher> exclude = matchers(fs, annotation.exclude());
+        if (include.isEmpty() && exclude.isEmpty()) {
+            return name -> true;
+        }
+        return name -> {
+            Path p = fs.getPath(name);
+            return (include.isEmpty() || include.stream().anyMatch(m -> m.matches(p)))
+                    && exclude.stream().noneMatch(m -> m.matches(p));
+        };
+    }
+
+    private List<PathMatcher> matchers(FileSystem fs, String[] globs) {
+        return Arrays.stream(globs).map(g -> fs.getPathMatcher("glob:" + g)).collect(Collectors.toList());
+    }
+
+    private boolean accepts(DeserializationContext context, HeaderFilter header, Path file) {
+        if (header == null) {
+            return true;
+        }
+        try {
+            return context.acceptsHeader(header, file);
+        } catch (IOException e) {
+            // an unreadable header fails only its own entry, when it is deserialized
+            return true;
+        }
+    }
+
+    private static final class Entry {
+        final Object bean;
+        final Object[] keys;
+
+        Entry(Object bean, List<Function<Object, Object>> keyReaders) {
+            this.bean = bean;
+            this.keys = new Object[keyReaders.size()];
+            for (int n = 0; n < keys.length; n++) {
+                keys[n] = keyReaders.get(n).apply(bean);
+            }
+        }
+    }
+
+    /**
+     * Gather the entries by their key for one index, in the order they were listed.
+     */
+    private BeanIndex<Object> index(Index index, int n, List<Entry> entries, Injector i) {
+        Map<Object, List<Object>> byKey = new HashMap<>();
+        for (Entry entry : entries) {
+            Object key = entry.keys[n];
+            if (key == null) {
+                continue;
+            }
+            List<Object> found = byKey.computeIfAbsent(key, k -> new ArrayList<>(1));
+            if (index.unique() && !found.isEmpty()) {
+                throw new BeanTreeException(
+                        String.format("Index %s: duplicate %s: %s", index.name(), index.property(), key), i);
+            }
+            found.add(entry.bean);
+        }
+        return new BeanIndex<>(index, byKey);
+    }
+
+    /**
+     * Create an array of the results, after any elements already in the target.
+     */
+    private Object arrayOf(Class<?> componentType, Object target, Collection<Object> results) {
+        int existing = target == null ? 0 : Array.getLength(target);
+        Object array = Array.newInstance(componentType, existing + results.size());
+        if (existing > 0) {
+            System.arraycopy(target, 0, array, 0, existing);
+        }
+        int n = existing;
+        for (Object result : results) {
+            Array.set(array, n++, result);
+        }
+        return array;
+    }
+
+    @Override
+    public String location(DeserializationContext context, BeanCollection annotation, Injector i) {
+        return toGlob(context, annotation, i);
+    }
+
+    @Override
+    public String entryName(BeanCollection annotation, Injector i, Path start, Path file) {
+        return nameFunction(annotation, collectionDir(annotation, i, start)).apply(file);
+    }
+
+    @Override
+    public int locationDepth(BeanCollection annotation, Injector i, String location) {
+        int depth = depth(annotation);
+        // the collection is walked from its own directory, except for MULTI_DIRS
+        return annotation.mapping() == Mapping.MULTI_DIRS || depth == Integer.MAX_VALUE ? depth : depth + 1;
+    }
+
+    @Override
+    public boolean includes(BeanCollection annotation, Injector i, Path start, Path file) {
+        return nameFilter(file.getFileSystem(), annotation).test(entryName(annotation, i, start, file));
+    }
+
+    @Override
+    public String template(BeanCollection annotation, Injector i) {
+        return templateName(annotation.template(), i);
+    }
+
     @SuppressWarnings("unchecked")
     private void applyResults(Object target, Map<String, Object> results) {
         if (target instanceof Map) {
@@ -212,10 +441,55 @@ public class BeanCollectionProcessor implements AnnotationProcessor<BeanCollecti
         }
     }
 
-    private Function<Path, String> nameFunction(BeanCollection annotation) {
-        return annotation.mapping() == Mapping.MULTI_DIRS
-                ? DeserializationContext.PARENT_DIR_NAME
-                : DeserializationContext.FILENAME_NO_EXTENSION;
+    /**
+     * The directory the collection is listed from.
+     */
+    private Path collectionDir(BeanCollection annotation, Injector i, Path start) {
+        return annotation.mapping() == Mapping.MULTI_DIRS ? start : start.resolve(name(annotation, i));
+    }
+
+    private Function<Path, String> nameFunction(BeanCollection annotation, Path dir) {
+        switch (annotation.mapping()) {
+            case MULTI_DIRS:
+                return DeserializationContext.PARENT_DIR_NAME;
+            case RECURSIVE:
+                return f -> relativeName(dir, f);
+            default:
+                return DeserializationContext.FILENAME_NO_EXTENSION;
+        }
+    }
+
+    /**
+     * Name a file by its path below the directory, without its extension.
+     */
+    private static String relativeName(Path dir, Path file) {
+        StringBuilder name = new StringBuilder();
+        for (Path element : dir.relativize(file)) {
+            if (name.length() > 0) {
+                name.append('/');
+            }
+            name.append(element);
+        }
+        int dot = name.lastIndexOf(".");
+        if (dot > name.lastIndexOf("/")) {
+            name.setLength(dot);
+        }
+        return name.toString();
+    }
+
+    /**
+     * How deep to walk from the directory: subdirectory and file for MULTI_DIRS,
+     * files only for CONF_DIR.
+     */
+    private int depth(BeanCollection annotation) {
+        switch (annotation.mapping()) {
+            case MULTI_DIRS:
+                return 2;
+            case RECURSIVE:
+                return annotation.depth();
+            default:
+                return 1;
+        }
     }
 
     private String toGlob(DeserializationContext context, BeanCollection annotation, Injector i) {
@@ -227,7 +501,7 @@ public class BeanCollectionProcessor implements AnnotationProcessor<BeanCollecti
                  *
                  * value/foo.json, value/bar.json, value/baz.json.
                  */
-                glob = String.format("%s/*%s", name(annotation, i), context.getDefaultExtension());
+                glob = String.format("%s/*%s", name(annotation, i), context.extensionGlob());
                 break;
             case MULTI_DIRS:
                 /*
@@ -236,11 +510,19 @@ public class BeanCollectionProcessor implements AnnotationProcessor<BeanCollecti
                  * foo/value.json, bar/value.json, baz/value.json
                  */
                 String file = name(annotation, i);
-                if (!file.endsWith(context.getDefaultExtension())) {
-                    file = file + context.getDefaultExtension();
+                if (context.extensions().stream().noneMatch(file::endsWith)) {
+                    file = file + context.extensionGlob();
                 }
                 glob = String.format("*/%s", file);
                 break;
+            case RECURSIVE:
+                /*
+                 * Use all files below a subdirectory. I.e.
+                 *
+                 * value/foo.json, value/bar/baz.json
+                 */
+                glob = String.format("%s/**%s", name(annotation, i), context.extensionGlob());
+                break;
             default:
                 assert false : "Unknown mapping type: " + annotation.mapping();
         }
@@ -74,16 +74,51 @@ public class BeanProcessor implements AnnotationProcessor<Bean> {
         return annotation.index();
     }
 
+    @Override
+    public int priorityOf(Bean annotation) {
+        return annotation.priority();
+    }
+
     String targetFile(DeserializationContext context, Bean annotation, Injector i) {
-        String name = annotation.value();
-        if (name.isBlank()) {
-            name = i.name();
+        String name = fileName(annotation, i);
+        if (name.contains(".")) {
+            return name;
         }
+        return name + context.extensionGlob();
+    }
+
+    private String fileName(Bean annotation, Injector i) {
+        return annotation.value().isBlank() ? i.name() : annotation.value();
+    }
 
+    /**
+     * Find the file to load, trying each extension in order if the name has none.
+     *
+     * @return the file, or null if there is none
+     */
+    Path findFile(DeserializationContext context, Bean annotation, Injector i) {
+        String name = fileName(annotation, i);
         if (name.contains(".")) {
-            return name;
+            Path file = resolve(context.peekFile(), name);
+            return Files.exists(file) ? file : null;
+        }
+        for (String extension : context.extensions()) {
+            Path file = resolve(context.peekFile(), name + extension);
+            if (Files.exists(file)) {
+                return file;
+            }
         }
-        return name + context.getDefaultExtension();
+        return null;
+    }
+
+    @Override
+    public String location(DeserializationContext context, Bean annotation, Injector i) {
+        return targetFile(context, annotation, i);
+    }
+
+    @Override
+    public String template(Bean annotation, Injector i) {
+        return templateName(annotation.template(), i);
     }
 
     Path resolve(Path location, String nextLocation) {
@@ -99,8 +134,8 @@ public class BeanProcessor implements AnnotationProcessor<Bean> {
 
     @Override
     public Object instantiate(DeserializationContext context, Bean annotation, Injector i, Object target) {
-        Path theFile = resolve(context.peekFile(), targetFile(context, annotation, i));
-        if (!Files.exists(theFile) && !Files.isRegularFile(theFile)) {
+        Path theFile = findFile(context, annotation, i);
+        if (theFile == null) {
             return null;
         }
 
@@ -112,7 +147,7 @@ public class BeanProcessor implements AnnotationProcessor<Bean> {
         // a warning is probably due if both an inline default is present *and* a template
         // is being declared.
         if (target == null || !annotation.template().isBlank()) {
-            target = context.getTemplateOrInstantiate(templateName, deserializationType);
+            target = context.getTemplateOrInstantiate(templateName, deserializationType, theFile);
         }
 
         return context.deserialize(target, theFile, DeserializationContext.FILENAME_NO_EXTENSION);
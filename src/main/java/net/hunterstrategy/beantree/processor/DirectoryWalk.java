@@ -0,0 +1,137 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.processor;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import net.hunterstrategy.beantree.ResourceGovernor;
+
+/**
+ * Find the regular files under a directory, down to a maximum depth. With a pool,
+ * each subdirectory is listed by its own task, so that large trees are split
+ * between the workers as they are discovered. Either way, each directory's
+ * entries are sorted by name, and the files of a subdirectory take its place
+ * among them, so files are in the order of their paths compared name by name.
+ * Links to directories are not followed.
+ */
+final class DirectoryWalk extends RecursiveTask<List<Path>> {
+    private static final long serialVersionUID = 1L;
+    private static final Comparator<Path> BY_NAME =
+            Comparator.comparing(p -> p.getFileName().toString());
+
+    private final transient Path dir;
+    private final int depth;
+    private final transient Predicate<Path> filter;
+    private final transient ResourceGovernor governor;
+    private final boolean parallel;
+
+    private DirectoryWalk(Path dir, int depth, Predicate<Path> filter, ResourceGovernor governor, boolean parallel) {
+        this.dir = dir;
+        this.depth = depth;
+        this.filter = filter;
+        this.governor = governor;
+        this.parallel = parallel;
+    }
+
+    /**
+     * @param dir the directory to start from; if it is not a directory, nothing is found
+     * @param depth the maximum depth of files, where files directly in the directory are 1
+     * @param filter the files to keep
+     * @param pool the pool to walk on, or null to walk on this thread
+     * @param governor opens each directory, or null
+     */
+    static List<Path> walk(Path dir, int depth, Predicate<Path> filter, ForkJoinPool pool, ResourceGovernor governor)
+            throws IOException {
+        if (depth < 1 || !Files.isDirectory(dir)) {
+            return Collections.emptyList();
+        }
+        DirectoryWalk walk = new DirectoryWalk(dir, depth, filter, governor, pool != null);
+        try {
+            if (pool == null) {
+                return walk.compute();
+            }
+            return ForkJoinTask.getPool() == pool ? walk.invoke() : pool.invoke(walk);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    protected List<Path> compute() {
+        List<Path> files = new ArrayList<>();
+        List<DirectoryWalk> subdirs = new ArrayList<>();
+        // where the files of each subdirectory go among the files of this one
+        List<Integer> positions = new ArrayList<>();
+        // the directory is closed before the filter opens any of its files
+        for (Path entry : list()) {
+            if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                if (depth > 1) {
+                    subdirs.add(new DirectoryWalk(entry, depth - 1, filter, governor, parallel));
+                    positions.add(files.size());
+                }
+            } else if (Files.isRegularFile(entry) && filter.test(entry)) {
+                files.add(entry);
+            }
+        }
+        if (subdirs.isEmpty()) {
+            return files;
+        }
+        if (parallel) {
+            ForkJoinTask.invokeAll(subdirs);
+        }
+        List<Path> walked = new ArrayList<>();
+        int from = 0;
+        for (int n = 0; n < subdirs.size(); n++) {
+            DirectoryWalk subdir = subdirs.get(n);
+            walked.addAll(files.subList(from, positions.get(n)));
+            walked.addAll(parallel ? subdir.join() : subdir.compute());
+            from = positions.get(n);
+        }
+        walked.addAll(files.subList(from, files.size()));
+        return walked;
+    }
+
+    private List<Path> list() {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream =
+                governor == null ? Files.newDirectoryStream(dir) : governor.newDirectoryStream(dir)) {
+            stream.forEach(entries::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        entries.sort(BY_NAME);
+        return entries;
+    }
+}
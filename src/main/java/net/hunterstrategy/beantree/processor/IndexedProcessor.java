@@ -0,0 +1,55 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.processor;
+
+
+import net.hunterstrategy.beantree.BeanIndex;
+import net.hunterstrategy.beantree.Indexed;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+import net.hunterstrategy.beantree.analysis.DeserializationContext;
+import net.hunterstrategy.beantree.analysis.Injector;
+
+public class IndexedProcessor implements AnnotationProcessor<Indexed> {
+
+    @Override
+    public void validateAnnotation(Indexed annotation) {
+        if (annotation.value().isBlank()) {
+            throw new IllegalArgumentException("Index name cannot be blank.");
+        }
+    }
+
+    @Override
+    public void validateInContext(DeserializationContext context, Injector i, Indexed annotation) {
+        if (!BeanIndex.class.equals(i.targetType())) {
+            throw new IllegalArgumentException("Indexed must be BeanIndex");
+        }
+    }
+
+    @Override
+    public Object instantiate(DeserializationContext context, Indexed annotation, Injector i, Object target) {
+        BeanIndex<?> index = context.index(annotation.value());
+        if (index == null) {
+            throw new BeanTreeException("No index named: " + annotation.value(), i);
+        }
+        return index;
+    }
+}
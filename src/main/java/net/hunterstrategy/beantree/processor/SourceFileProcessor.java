@@ -24,6 +24,7 @@ package net.hunterstrategy.beantree.processor;
 
 import java.nio.file.Path;
 import net.hunterstrategy.beantree.SourceFile;
+import net.hunterstrategy.beantree.SourceLocation;
 import net.hunterstrategy.beantree.analysis.DeserializationContext;
 import net.hunterstrategy.beantree.analysis.Injector;
 
@@ -34,15 +35,20 @@ public class SourceFileProcessor implements AnnotationProcessor<SourceFile> {
 
     @Override
     public void validateInContext(DeserializationContext context, Injector i, SourceFile annotation) {
-        if (!(String.class.equals(i.targetType()) || Path.class.equals(i.targetType()))) {
-            throw new IllegalArgumentException("Name must be String or Path");
+        if (!(String.class.equals(i.targetType())
+                || Path.class.equals(i.targetType())
+                || SourceLocation.class.equals(i.targetType()))) {
+            throw new IllegalArgumentException("SourceFile must be String, Path, or SourceLocation");
         }
     }
 
     @Override
     public Object instantiate(DeserializationContext context, SourceFile annotation, Injector i, Object target) {
         if (String.class.equals(i.targetType())) {
-            return context.peekFile().toString();
+            return context.intern(context.peekFile().toString());
+        }
+        if (SourceLocation.class.equals(i.targetType())) {
+            return context.peekLocation();
         }
         return context.peekFile();
     }
@@ -53,6 +53,27 @@ public class TemplateProcessor implements AnnotationProcessor<Template> {
         }
     }
 
+    @Override
+    public Class<?> getTargetDeserializationType(Template annotation, Injector i) {
+        if (hasBeanSettings(annotation)) {
+            return beanProcessor.getTargetDeserializationType(annotation.external(), i);
+        }
+        return i.targetType();
+    }
+
+    @Override
+    public String location(DeserializationContext context, Template annotation, Injector i) {
+        if (hasBeanSettings(annotation)) {
+            return beanProcessor.location(context, annotation.external(), i);
+        }
+        return null;
+    }
+
+    @Override
+    public String template(Template annotation, Injector i) {
+        return annotation.value();
+    }
+
     @Override
     public Object instantiate(DeserializationContext context, Template annotation, Injector i, Object target) {
         Object result = target;
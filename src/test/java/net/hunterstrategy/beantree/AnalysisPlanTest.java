@@ -0,0 +1,114 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.hunterstrategy.beantree.AnalysisPlan.Step;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import net.hunterstrategy.beantree.FileBeans.ChildBeanWithGrandChild;
+import net.hunterstrategy.beantree.InvalidFileBeans.AbsoluteFile;
+import net.hunterstrategy.beantree.TemplateBeans.Dependency;
+import net.hunterstrategy.beantree.TreeDiffTest.Tree;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: analysis plans")
+public class AnalysisPlanTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    @Test
+    @DisplayName("Plans list every type with its steps in order")
+    void plan() {
+        AnalysisPlan plan = builder.plan(Tree.class);
+        Assertions.assertEquals(List.of(Tree.class, ChildBean.class), plan.types());
+
+        String expected = String.join(
+                "\n",
+                "net.hunterstrategy.beantree.TreeDiffTest$Tree",
+                "    main 0 child @Bean child.json template=child -> net.hunterstrategy.beantree.FileBeans$ChildBean",
+                "    main 0 beans @BeanCollection conf.d/*.json template=beans"
+                        + " -> net.hunterstrategy.beantree.FileBeans$ChildBean",
+                "net.hunterstrategy.beantree.FileBeans$ChildBean",
+                "    post 0 beanName @Name",
+                "");
+        Assertions.assertEquals(expected, plan.toString());
+    }
+
+    @Test
+    @DisplayName("Plans follow the default extension and template dependencies")
+    void plan_templates() {
+        AnalysisPlan plan =
+                new ConfigurationTreeBuilder().defaultExtension("toml").plan(Dependency.class);
+        List<Step> steps = plan.steps(Dependency.class);
+        Assertions.assertEquals(3, steps.size());
+
+        Step inline = steps.get(0);
+        Assertions.assertEquals("dependency", inline.member());
+        Assertions.assertEquals("pre", inline.phase());
+        Assertions.assertTrue(inline.location().isEmpty());
+        Assertions.assertTrue(inline.beanType().isEmpty());
+
+        Step external = steps.get(1);
+        Assertions.assertEquals("defaults", external.member());
+        Assertions.assertEquals("bean-defaults.toml", external.location().orElseThrow());
+        Assertions.assertEquals("bean", external.template().orElseThrow());
+        Assertions.assertEquals(ChildBean.class, external.beanType().orElseThrow());
+
+        Step bean = steps.get(2);
+        Assertions.assertEquals("main", bean.phase());
+        Assertions.assertEquals("bean.toml", bean.location().orElseThrow());
+        Assertions.assertTrue(plan.steps(String.class).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Planning reports invalid annotations")
+    void plan_invalid() {
+        Assertions.assertThrows(BeanTreeException.class, () -> builder.plan(AbsoluteFile.class));
+    }
+
+    @Test
+    @DisplayName("Types are validated once per build")
+    void validated_once() {
+        AtomicInteger created = new AtomicInteger();
+        builder.factory(ChildBean.class, () -> {
+            created.incrementAndGet();
+            return new ChildBean();
+        });
+        builder.plan(Parents.class);
+        created.set(0);
+
+        // validating each parent instantiates a child, but none are loaded
+        Parents parents = builder.build(Parents.class, resource("validated_once", "entry.json"));
+        Assertions.assertEquals(3, parents.parents.size());
+        Assertions.assertEquals(1, created.get());
+    }
+
+    public static class Parents {
+        @BeanCollection("conf.d")
+        Map<String, ChildBeanWithGrandChild> parents;
+    }
+}
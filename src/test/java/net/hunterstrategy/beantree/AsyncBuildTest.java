@@ -0,0 +1,137 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: asynchronous builds and reading ahead")
+public class AsyncBuildTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+    AtomicInteger reads = new AtomicInteger();
+    Executor counting = task -> {
+        reads.incrementAndGet();
+        ForkJoinPool.commonPool().execute(task);
+    };
+
+    private Path entry() {
+        return resource("tree", "entry.json");
+    }
+
+    private static void assertTree(Tree tree) {
+        Assertions.assertEquals("tree", tree.name);
+        Assertions.assertEquals("child_foo", tree.child.childFoo);
+        Assertions.assertEquals(5, tree.beans.size());
+        tree.beans.forEach((name, bean) -> Assertions.assertEquals(name + "_foo", bean.childFoo));
+    }
+
+    @Test
+    @DisplayName("Build a tree in the background")
+    void build_async() {
+        CompletableFuture<Tree> future = builder.readAhead(2, counting).buildAsync(Tree.class, entry());
+        assertTree(future.join());
+        Assertions.assertTrue(reads.get() > 0);
+    }
+
+    @Test
+    @DisplayName("Read files ahead of a synchronous build")
+    void read_ahead() {
+        assertTree(builder.readAhead(1, counting).build(Tree.class, entry()));
+        Assertions.assertTrue(reads.get() > 0);
+    }
+
+    @Test
+    @DisplayName("Reading ahead does not change provenance")
+    void read_ahead_provenance() {
+        builder.recordProvenance(true);
+        ConfigurationTree<Tree> plain = builder.buildTree(Tree.class, entry());
+        ConfigurationTree<Tree> readAhead = builder.readAhead(4, counting).buildTree(Tree.class, entry());
+
+        Assertions.assertTrue(reads.get() > 0);
+        Assertions.assertTrue(plain.provenance(plain.root())
+                .orElseThrow()
+                .sameContent(readAhead.provenance(readAhead.root()).orElseThrow()));
+    }
+
+    @Test
+    @DisplayName("Files parsed through a cache are not read ahead")
+    void parse_once_not_read_ahead() {
+        assertTree(builder.parseOnce(true).readAhead(2, counting).build(Tree.class, entry()));
+        Assertions.assertEquals(0, reads.get());
+    }
+
+    @Test
+    @DisplayName("Entries cloned from shared templates use what was read ahead")
+    void shared_templates_read_ahead() {
+        // reads run as they are scheduled, so every file is read ahead unless the window is stuck
+        Executor inline = task -> {
+            reads.incrementAndGet();
+            task.run();
+        };
+        Templated tree = builder.shareTemplates(true)
+                .readAhead(2, inline)
+                .build(Templated.class, resource("templated", "entry.json"));
+        Assertions.assertEquals(5, tree.beans.size());
+        tree.beans.forEach((name, bean) -> Assertions.assertEquals(7, bean.childBar));
+        Assertions.assertEquals(6, reads.get());
+    }
+
+    @Test
+    @DisplayName("Failures complete the future exceptionally")
+    void build_async_failure() {
+        CompletableFuture<Tree> future = builder.buildAsync(Tree.class, resource("broken", "entry.json"));
+        CompletionException e = Assertions.assertThrows(CompletionException.class, future::join);
+        Assertions.assertTrue(e.getCause() instanceof BeanTreeException, e.toString());
+    }
+
+    public static class Templated {
+        @Template("bean")
+        ChildBean defaults;
+
+        @Bean
+        ChildBean child;
+
+        @BeanCollection(value = "conf.d", template = "bean")
+        Map<String, ChildBean> beans;
+    }
+
+    public static class Tree {
+        String name;
+
+        @Bean
+        ChildBean child;
+
+        @BeanCollection("conf.d")
+        Map<String, ChildBean> beans;
+    }
+}
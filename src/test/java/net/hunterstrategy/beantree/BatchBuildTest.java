@@ -0,0 +1,156 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import net.hunterstrategy.beantree.FileBeanTest.CountingFactory;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Integration test: building many roots at once")
+public class BatchBuildTest {
+    private static final int TENANTS = 20;
+
+    @TempDir
+    Path dir;
+
+    Map<String, Path> roots = new LinkedHashMap<>();
+
+    /**
+     * Each tenant has its own root file, and a hard link to the same defaults.
+     */
+    @BeforeEach
+    void tenants() throws IOException {
+        Path defaults = Files.writeString(dir.resolve("defaults.json"), "{\"childFoo\": \"shared\"}");
+        for (int i = 0; i < TENANTS; i++) {
+            Path tenant = Files.createDirectory(dir.resolve("t" + i));
+            Files.createLink(tenant.resolve("defaults.json"), defaults);
+            roots.put("t" + i, Files.writeString(tenant.resolve("tenant.json"), "{\"name\": \"t" + i + "\"}"));
+        }
+    }
+
+    @Test
+    @DisplayName("Every root is built, in the order given")
+    void build_all() {
+        BatchBuild<Tenant> batch = new ConfigurationTreeBuilder()
+                .pool(ForkJoinPool.commonPool())
+                .deduplicateStrings(true)
+                .buildAll(Tenant.class, roots);
+        Assertions.assertTrue(batch.isComplete());
+        Assertions.assertEquals(roots.keySet(), batch.trees().keySet());
+        batch.trees().forEach((name, tree) -> {
+            Assertions.assertEquals(name, tree.root().name);
+            Assertions.assertEquals("shared", tree.root().defaults.childFoo);
+        });
+        Assertions.assertSame(
+                batch.root("t0").orElseThrow().defaults.childFoo,
+                batch.root("t1").orElseThrow().defaults.childFoo);
+    }
+
+    @Test
+    @DisplayName("Shared files are parsed once for the whole batch")
+    void parse_once() {
+        CountingFactory factory = new CountingFactory();
+        BatchBuild<Tenant> batch = new ConfigurationTreeBuilder()
+                .mapper(new ObjectMapper(factory))
+                .defaultMapperVisibilitySettings()
+                .parseOnce(true)
+                .buildAll(Tenant.class, roots);
+        Assertions.assertTrue(batch.isComplete());
+        Assertions.assertEquals(TENANTS + 1, factory.parsed.get());
+        Assertions.assertNotSame(
+                batch.root("t0").orElseThrow().defaults, batch.root("t1").orElseThrow().defaults);
+    }
+
+    @Test
+    @DisplayName("Threads that miss the same file at once parse it once")
+    void concurrent_misses() throws Exception {
+        int threads = 8;
+        CountDownLatch keyed = new CountDownLatch(threads);
+        ParseCache cache = new ParseCache(p -> {
+            // every thread computes the key before any of them reads the file
+            keyed.countDown();
+            try {
+                keyed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return p.toAbsolutePath();
+        });
+        CountingFactory factory = new CountingFactory();
+        ObjectMapper mapper = new ObjectMapper(factory);
+        Path defaults = dir.resolve("defaults.json");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ParseCache.Parsed>> reads = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                reads.add(executor.submit(() -> cache.read(defaults, mapper, false)));
+            }
+            ParseCache.Parsed first = reads.get(0).get();
+            for (Future<ParseCache.Parsed> read : reads) {
+                Assertions.assertSame(first.tree(), read.get().tree());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, cache.misses());
+        Assertions.assertEquals(threads - 1, cache.hits());
+        Assertions.assertEquals(1, factory.parsed.get());
+    }
+
+    @Test
+    @DisplayName("A root that fails does not stop the others")
+    void failures() throws IOException {
+        Path broken = Files.createDirectory(dir.resolve("broken"));
+        roots.put("broken", Files.writeString(broken.resolve("tenant.json"), "{"));
+        BatchBuild<Tenant> batch = new ConfigurationTreeBuilder().buildAll(Tenant.class, roots);
+        Assertions.assertFalse(batch.isComplete());
+        Assertions.assertEquals(TENANTS, batch.trees().size());
+        Assertions.assertTrue(batch.failures().containsKey("broken"));
+        Assertions.assertTrue(batch.root("broken").isEmpty());
+    }
+
+    public static class Tenant {
+        String name;
+
+        @Bean("defaults")
+        ChildBean defaults;
+    }
+}
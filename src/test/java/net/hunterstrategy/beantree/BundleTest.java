@@ -0,0 +1,165 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.toml.TomlMapper;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import net.hunterstrategy.beantree.BeanCollection.Mapping;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import net.hunterstrategy.beantree.bundle.BundleFileSystems;
+import net.hunterstrategy.beantree.bundle.BundlePacker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Integration test: bundles")
+public class BundleTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    @TempDir
+    Path temp;
+
+    private Path entry() {
+        return resource("tree", "entry.json");
+    }
+
+    private void assertTree(Root root) {
+        Assertions.assertEquals("root", root.name);
+        Assertions.assertEquals("child", root.child.childFoo);
+        Assertions.assertEquals(2, root.beans.size());
+        Assertions.assertEquals(3, root.beans.get("b").childBar);
+        Assertions.assertEquals("p1", root.plugins.get("p1").name);
+        Assertions.assertEquals("x", root.plugins.get("p1").beans.get("x").childFoo);
+        Assertions.assertEquals("p2", root.plugins.get("p2").name);
+    }
+
+    @Test
+    @DisplayName("Bundles hold every file of the plan, and nothing else")
+    void packed_files() throws IOException {
+        List<String> packed = new BundlePacker(builder.plan(Root.class)).pack(entry(), temp.resolve("tree.bundle"));
+        Assertions.assertEquals(
+                List.of(
+                        "entry.json",
+                        "child.json",
+                        "conf.d/a.json",
+                        "conf.d/b.json",
+                        "p1/plugin.json",
+                        "p1/conf.d/x.json",
+                        "p2/plugin.json"),
+                packed);
+    }
+
+    @Test
+    @DisplayName("Bundles leave out files that collection filters and depths skip")
+    void filtered_files() throws IOException {
+        List<String> packed = new BundlePacker(builder.plan(Filtered.class)).pack(entry(), temp.resolve("tree.bundle"));
+        Assertions.assertEquals(List.of("entry.json", "conf.d/a.json", "p1/plugin.json"), packed);
+    }
+
+    @Test
+    @DisplayName("Trees built from bundles match trees built from files")
+    void build_from_bundle() throws IOException {
+        Path bundle = temp.resolve("tree.bundle");
+        new BundlePacker(builder.plan(Root.class)).pack(entry(), bundle);
+        assertTree(builder.build(Root.class, entry()));
+        try (FileSystem fs = BundleFileSystems.open(bundle)) {
+            assertTree(builder.build(Root.class, fs.getPath("/entry.json")));
+            Assertions.assertFalse(Files.exists(fs.getPath("/notes")));
+        }
+    }
+
+    @Test
+    @DisplayName("Files can be re-encoded into another format as they are packed")
+    void reencoded_bundle() throws IOException {
+        Path bundle = temp.resolve("tree.bundle");
+        List<String> packed = new BundlePacker(builder.plan(Root.class))
+                .reencode("json", new ObjectMapper(), "toml", new TomlMapper())
+                .pack(entry(), bundle);
+        Assertions.assertEquals("entry.toml", packed.get(0));
+        try (FileSystem fs = BundleFileSystems.open(bundle)) {
+            ConfigurationTreeBuilder tomlBuilder = new ConfigurationTreeBuilder()
+                    .format("toml", new TomlMapper().setVisibility(PropertyAccessor.FIELD, Visibility.ANY));
+            assertTree(tomlBuilder.build(Root.class, fs.getPath("/entry.toml")));
+        }
+    }
+
+    @Test
+    @DisplayName("Files whose content does not match its digest fail to open")
+    void corrupt_content() throws IOException {
+        Path bundle = temp.resolve("tree.bundle");
+        new BundlePacker(builder.plan(Root.class)).pack(entry(), bundle);
+        byte[] bytes = Files.readAllBytes(bundle);
+        bytes[0] ^= 1;
+        Files.write(bundle, bytes);
+        try (FileSystem fs = BundleFileSystems.open(bundle)) {
+            Assertions.assertThrows(IOException.class, () -> Files.readAllBytes(fs.getPath("/entry.json")));
+            Assertions.assertArrayEquals(
+                    Files.readAllBytes(resource("tree", "child.json")), Files.readAllBytes(fs.getPath("/child.json")));
+        }
+    }
+
+    @Test
+    @DisplayName("Files that are not bundles are rejected")
+    void not_a_bundle() {
+        Assertions.assertThrows(IOException.class, () -> BundleFileSystems.open(entry()));
+    }
+
+    public static class Plugin {
+        String name;
+
+        @BeanCollection("conf.d")
+        Map<String, ChildBean> beans;
+    }
+
+    public static class Filtered {
+        String name;
+
+        @BeanCollection(value = "conf.d", exclude = "b")
+        Map<String, ChildBean> beans;
+
+        @BeanCollection(value = "p1", mapping = Mapping.RECURSIVE, depth = 1)
+        Map<String, ChildBean> plugins;
+    }
+
+    public static class Root {
+        String name;
+
+        @Bean
+        ChildBean child;
+
+        @BeanCollection("conf.d")
+        Map<String, ChildBean> beans;
+
+        @BeanCollection(value = "plugin", mapping = Mapping.MULTI_DIRS)
+        Map<String, Plugin> plugins;
+    }
+}
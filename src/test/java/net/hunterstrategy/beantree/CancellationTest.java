@@ -0,0 +1,119 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: deadlines and cancellation")
+public class CancellationTest implements FunctionalTestSupport {
+    static final Cancellation CANCELLED_BY_FILTER = new Cancellation();
+
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    private Path entry() {
+        return resource("tree", "entry.json");
+    }
+
+    @Test
+    @DisplayName("Files loaded are counted for progress")
+    void progress() {
+        Cancellation cancellation = new Cancellation();
+        Tree tree = builder.cancellation(cancellation).build(Tree.class, entry());
+        Assertions.assertEquals(3, tree.beans.size());
+        Assertions.assertEquals(5, cancellation.filesLoaded());
+        Assertions.assertFalse(cancellation.isCancelled());
+    }
+
+    @Test
+    @DisplayName("A cancelled build stops before its first file")
+    void cancelled() {
+        Cancellation cancellation = new Cancellation();
+        cancellation.cancel();
+        BuildCancelledException e =
+                Assertions.assertThrows(BuildCancelledException.class, () -> builder.cancellation(cancellation)
+                        .build(Tree.class, entry()));
+        Assertions.assertEquals(0, e.filesLoaded());
+        Assertions.assertEquals(entry(), e.file());
+        Assertions.assertTrue(e.getMessage().contains("cancelled"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("A build past its deadline stops")
+    void timeout() {
+        BuildCancelledException e =
+                Assertions.assertThrows(BuildCancelledException.class, () -> builder.timeout(Duration.ZERO)
+                        .build(Tree.class, entry()));
+        Assertions.assertTrue(e.getMessage().contains("deadline"), e.getMessage());
+
+        // each build gets its own deadline
+        Assertions.assertNotNull(builder.timeout(Duration.ofMinutes(1)).build(Tree.class, entry()));
+    }
+
+    @Test
+    @DisplayName("Cancelling a running build stops it between collection entries, even when collecting errors")
+    void cancelled_between_entries() {
+        builder.cancellation(CANCELLED_BY_FILTER).collectErrors(true);
+        BuildCancelledException e = Assertions.assertThrows(
+                BuildCancelledException.class, () -> builder.buildTree(CancelledTree.class, entry()));
+        Assertions.assertEquals(2, e.filesLoaded());
+        Assertions.assertEquals("conf.d", e.file().getParent().getFileName().toString());
+    }
+
+    /**
+     * Cancels the build from the first entry of the collection it filters.
+     */
+    public static class CancelOnFirst implements HeaderFilter {
+        @Override
+        public boolean accept(JsonParser parser) {
+            CANCELLED_BY_FILTER.cancel();
+            return true;
+        }
+    }
+
+    public static class Tree {
+        String name;
+
+        @Bean(index = -1)
+        ChildBean child;
+
+        @BeanCollection("conf.d")
+        Map<String, ChildBean> beans;
+    }
+
+    public static class CancelledTree {
+        String name;
+
+        @Bean(index = -1)
+        ChildBean child;
+
+        @BeanCollection(value = "conf.d", filter = CancelOnFirst.class)
+        Map<String, ChildBean> beans;
+    }
+}
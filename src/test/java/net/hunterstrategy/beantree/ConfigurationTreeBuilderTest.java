@@ -22,6 +22,8 @@
 package net.hunterstrategy.beantree;
 
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -30,6 +32,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.io.TempDir;
 
 @DisplayName("Integration test: ConfigurationTreeBuilder features")
 public class ConfigurationTreeBuilderTest implements FunctionalTestSupport {
@@ -101,4 +104,28 @@ public class ConfigurationTreeBuilderTest implements FunctionalTestSupport {
 
         Assertions.assertEquals(1, bean.beans.size());
     }
+
+    @Test
+    @DisplayName("Can persist the analysis cache between builders")
+    void persisted_analysis_cache(@TempDir Path dir) {
+        Path p = resource("custom_factories", "entry.json");
+        Path cacheFile = dir.resolve("analysis.json");
+        builder.analysisCacheFile(cacheFile).build(SimpleSet.class, p);
+        Assertions.assertTrue(Files.isRegularFile(cacheFile));
+
+        SimpleSet bean =
+                new ConfigurationTreeBuilder().analysisCacheFile(cacheFile).build(SimpleSet.class, p);
+        Assertions.assertEquals(1, bean.beans.size());
+    }
+
+    @Test
+    @DisplayName("Failing to write the analysis cache does not fail the build")
+    void unwritable_analysis_cache(@TempDir Path dir) throws IOException {
+        Path p = resource("custom_factories", "entry.json");
+        Path notADirectory = Files.writeString(dir.resolve("file"), "");
+        Path cacheFile = notADirectory.resolve("analysis.json");
+        SimpleSet bean = builder.analysisCacheFile(cacheFile).build(SimpleSet.class, p);
+        Assertions.assertEquals(1, bean.beans.size());
+        Assertions.assertFalse(Files.exists(cacheFile));
+    }
 }
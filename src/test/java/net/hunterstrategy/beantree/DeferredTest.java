@@ -0,0 +1,83 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: deferred values")
+public class DeferredTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    @Test
+    @DisplayName("Deferred values are bound on first read, once")
+    void bound_on_first_read() {
+        Rules rules = builder.build(Rules.class, resource("rules", "entry.json"));
+        Assertions.assertEquals("rules", rules.name);
+        Assertions.assertFalse(rules.table.isBound());
+
+        Map<String, Rule> table = rules.table.get();
+        Assertions.assertTrue(rules.table.isBound());
+        Assertions.assertEquals(2, table.size());
+        Assertions.assertEquals("*.example.com", table.get("allow").pattern);
+        Assertions.assertSame(table, rules.table.get());
+    }
+
+    @Test
+    @DisplayName("Values that cannot be bound fail when read, not when loaded")
+    void bind_failure() {
+        Rules rules = builder.build(Rules.class, resource("rules", "entry.json"));
+        Assertions.assertThrows(UncheckedIOException.class, rules.broken::get);
+        Assertions.assertFalse(rules.broken.isBound());
+    }
+
+    @Test
+    @DisplayName("Deferred values serialize without being bound")
+    void serialized_unbound() throws Exception {
+        Rules rules = builder.build(Rules.class, resource("rules", "entry.json"));
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode tree = mapper.valueToTree(rules);
+        Assertions.assertFalse(rules.table.isBound());
+        Assertions.assertEquals(mapper.readTree(resource("rules", "entry.json").toFile()), tree);
+
+        rules.table.get();
+        Assertions.assertEquals(tree, mapper.valueToTree(rules));
+        Assertions.assertEquals("{}", mapper.writeValueAsString(Deferred.of(Map.of())));
+    }
+
+    public static class Rule {
+        public int priority;
+        public String pattern;
+    }
+
+    public static class Rules {
+        public String name;
+        public Deferred<Map<String, Rule>> table;
+        public Deferred<Rule> broken;
+    }
+}
@@ -22,16 +22,29 @@
 package net.hunterstrategy.beantree;
 
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import net.hunterstrategy.beantree.DirBeans.BasicDir;
 import net.hunterstrategy.beantree.DirBeans.BasicDirFileTemplate;
 import net.hunterstrategy.beantree.DirBeans.BasicDirTemplate;
 import net.hunterstrategy.beantree.DirBeans.BasicSubdirs;
 import net.hunterstrategy.beantree.DirBeans.MemberIsImplicitName;
+import net.hunterstrategy.beantree.DirBeans.RecursiveArray;
+import net.hunterstrategy.beantree.DirBeans.RecursiveDir;
+import net.hunterstrategy.beantree.DirBeans.ShallowRecursiveDir;
 import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import net.hunterstrategy.beantree.InvalidDirBeans.ArrayTypeMismatch;
 import net.hunterstrategy.beantree.InvalidDirBeans.BadType;
 import net.hunterstrategy.beantree.InvalidDirBeans.CannotDeriveGenericType;
 import net.hunterstrategy.beantree.InvalidDirBeans.ContainsGlob;
@@ -40,15 +53,18 @@ import net.hunterstrategy.beantree.InvalidDirBeans.IsAbsolute;
 import net.hunterstrategy.beantree.InvalidDirBeans.IsRelative;
 import net.hunterstrategy.beantree.InvalidDirBeans.MapDoesNotDeclareString;
 import net.hunterstrategy.beantree.InvalidDirBeans.TemplateTypeMismatch;
+import net.hunterstrategy.beantree.InvalidDirBeans.ToArray;
 import net.hunterstrategy.beantree.InvalidDirBeans.ToList;
 import net.hunterstrategy.beantree.InvalidDirBeans.ToQueue;
 import net.hunterstrategy.beantree.InvalidDirBeans.ToSet;
 import net.hunterstrategy.beantree.InvalidDirBeans.UnknownTypes;
+import net.hunterstrategy.beantree.InvalidDirBeans.ZeroDepth;
 import net.hunterstrategy.beantree.analysis.BeanTreeException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.io.TempDir;
 
 @DisplayName("Integration test: BeanCollection (directories of files)")
 public class DirBeanTest implements FunctionalTestSupport {
@@ -93,6 +109,33 @@ public class DirBeanTest implements FunctionalTestSupport {
         assert_basic_map(bd.beans);
     }
 
+    @Test
+    @DisplayName("Recursive strategy names beans by their path (dir/**.json)")
+    void recursive_dir() {
+        Path p = resource("recursive_dir", "entry.json");
+        RecursiveDir rd = builder.build(RecursiveDir.class, p);
+        Assertions.assertEquals(Set.of("top", "a/mid", "a/b/c", "a/b/deep"), rd.beans.keySet());
+        assert_childbean("c_value", 3, rd.beans.get("a/b/c"));
+        Assertions.assertEquals("a/b/c", rd.beans.get("a/b/c").beanName);
+    }
+
+    @Test
+    @DisplayName("Recursive strategy stops at its depth")
+    void recursive_dir_depth() {
+        Path p = resource("recursive_dir", "entry.json");
+        ShallowRecursiveDir rd = builder.build(ShallowRecursiveDir.class, p);
+        Assertions.assertEquals(Set.of("top", "a/mid"), rd.beans.keySet());
+    }
+
+    @Test
+    @DisplayName("Recursive strategy finds the same beans when walking on a pool")
+    void recursive_dir_pool() {
+        Path p = resource("recursive_dir", "entry.json");
+        RecursiveDir rd = builder.pool(ForkJoinPool.commonPool()).build(RecursiveDir.class, p);
+        Assertions.assertEquals(Set.of("top", "a/mid", "a/b/c", "a/b/deep"), rd.beans.keySet());
+        assert_childbean("deep_value", 4, rd.beans.get("a/b/deep"));
+    }
+
     @Test
     @DisplayName("Basic test with List")
     void basic_dir_list() {
@@ -119,6 +162,66 @@ public class DirBeanTest implements FunctionalTestSupport {
         Assertions.assertTrue(bean.beans instanceof LinkedHashSet);
     }
 
+    @Test
+    @DisplayName("Basic test with an array")
+    void basic_dir_array() {
+        Path p = resource("basic_dir", "entry.json");
+        ToArray arraybean = builder.build(ToArray.class, p);
+        Map<String, ChildBean> beans =
+                Arrays.stream(arraybean.beans).collect(Collectors.toMap(cb -> cb.beanName, cb -> cb));
+        assert_basic_map(beans);
+    }
+
+    @Test
+    @DisplayName("Array elements are sorted by file name")
+    void array_order(@TempDir Path dir) throws IOException {
+        Path conf = Files.createDirectory(dir.resolve("conf.d"));
+        List<String> names = new ArrayList<>();
+        for (int n = 0; n < 40; n++) {
+            Files.writeString(conf.resolve("bean" + n + ".json"), "{}");
+            names.add("bean" + n);
+        }
+        Collections.sort(names);
+        Path p = Files.writeString(dir.resolve("entry.json"), "{}");
+        ToArray arraybean = builder.build(ToArray.class, p);
+        Assertions.assertEquals(
+                names, Arrays.stream(arraybean.beans).map(cb -> cb.beanName).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Recursive array elements are sorted by path, with or without a pool")
+    void recursive_array_order() {
+        Path p = resource("recursive_dir", "entry.json");
+        List<String> expected = List.of("a/b/c", "a/b/deep", "a/mid", "top");
+        RecursiveArray ra = builder.build(RecursiveArray.class, p);
+        Assertions.assertEquals(
+                expected, Arrays.stream(ra.beans).map(cb -> cb.beanName).collect(Collectors.toList()));
+        ra = builder.pool(ForkJoinPool.commonPool()).build(RecursiveArray.class, p);
+        Assertions.assertEquals(
+                expected, Arrays.stream(ra.beans).map(cb -> cb.beanName).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Array elements must be assignable from the deserialization type")
+    void array_type_mismatch() {
+        Throwable t = assert_throws(ArrayTypeMismatch.class, BeanTreeException.class);
+        Assertions.assertTrue(t.getMessage().contains("not assignable to array of"), t.getMessage());
+    }
+
+    @Test
+    @DisplayName("Collection factories are given the number of entries")
+    void sized_collection_factory() {
+        Path p = resource("basic_dir", "entry.json");
+        List<Integer> sizes = new ArrayList<>();
+        builder.collectionFactory(Map.class, size -> {
+            sizes.add(size);
+            return new HashMap<>();
+        });
+        BasicDir bd = builder.build(BasicDir.class, p);
+        assert_basic_map(bd.beans);
+        Assertions.assertEquals(List.of(2), sizes);
+    }
+
     @Test
     @DisplayName("Basic test with Queue")
     void basic_dir_queue() {
@@ -189,6 +292,13 @@ public class DirBeanTest implements FunctionalTestSupport {
         Assertions.assertTrue(t.getMessage().contains("Dir/file cannot be an absolute path: "), t.getMessage());
     }
 
+    @Test
+    @DisplayName("Recursive collections must be at least one level deep")
+    void zero_depth() {
+        Throwable t = assert_throws(ZeroDepth.class, BeanTreeException.class);
+        Assertions.assertTrue(t.getMessage().contains("Depth must be at least 1: 0"), t.getMessage());
+    }
+
     @Test
     @DisplayName("Cannot use relative paths")
     void relative_path_expression() {
@@ -200,7 +310,8 @@ public class DirBeanTest implements FunctionalTestSupport {
     @DisplayName("Must use specific types")
     void bad_type() {
         Throwable t = assert_throws(BadType.class, BeanTreeException.class);
-        Assertions.assertTrue(t.getMessage().contains("Target type must be Map, List, Queue, or Set."), t.getMessage());
+        Assertions.assertTrue(
+                t.getMessage().contains("Target type must be Map, List, Queue, Set, or an array."), t.getMessage());
     }
 
     @Test
@@ -69,4 +69,25 @@ public final class DirBeans {
         @BeanCollection(mapping = Mapping.MULTI_DIRS)
         Map<String, ChildBean> child;
     }
+
+    public static class RecursiveDir {
+        String name;
+
+        @BeanCollection(value = "catalog", mapping = Mapping.RECURSIVE)
+        Map<String, ChildBean> beans;
+    }
+
+    public static class RecursiveArray {
+        String name;
+
+        @BeanCollection(value = "catalog", mapping = Mapping.RECURSIVE)
+        ChildBean[] beans;
+    }
+
+    public static class ShallowRecursiveDir {
+        String name;
+
+        @BeanCollection(value = "catalog", mapping = Mapping.RECURSIVE, depth = 2)
+        Map<String, ChildBean> beans;
+    }
 }
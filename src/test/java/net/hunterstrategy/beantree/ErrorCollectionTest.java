@@ -0,0 +1,160 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import net.hunterstrategy.beantree.BeanCollection.Mapping;
+import net.hunterstrategy.beantree.TreeDiffTest.Tree;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+import net.hunterstrategy.beantree.analysis.BuildError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: collecting errors and parallel builds")
+public class ErrorCollectionTest implements FunctionalTestSupport {
+    ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private Path entry() {
+        return resource("errors", "entry.json");
+    }
+
+    private List<Path> files(ConfigurationTree<?> tree) {
+        return tree.errors().stream().map(BuildError::file).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Every failing file is reported by a single build")
+    void collects_every_error() {
+        ConfigurationTree<Root> tree =
+                new ConfigurationTreeBuilder().collectErrors(true).buildTree(Root.class, entry());
+
+        Set<Path> expected = Set.of(
+                resource("errors", "child.json"),
+                resource("errors", "conf.d", "b.json"),
+                resource("errors", "conf.d", "c.json"),
+                resource("errors", "n1", "conf.d", "x.json"),
+                resource("errors", "n2", "item.json"));
+        Assertions.assertEquals(expected.size(), tree.errors().size());
+        Assertions.assertEquals(expected, Set.copyOf(files(tree)));
+
+        // injection points are reported for failures beneath a file, not in it
+        BuildError read = tree.errors().stream()
+                .filter(e -> e.file().endsWith("item.json"))
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertTrue(read.injector().isEmpty());
+        Assertions.assertTrue(read.toString().contains("item.json"));
+
+        // the rest of the tree is still loaded
+        Root root = tree.root();
+        Assertions.assertEquals("root", root.name);
+        Assertions.assertEquals(1, root.children.get("a").value);
+        Assertions.assertEquals(4, root.children.get("d").value);
+        Map<String, Node> nodes = root.nodes.stream().collect(Collectors.toMap(n -> n.name, n -> n));
+        Assertions.assertEquals("one", nodes.get("n1").label);
+        Assertions.assertEquals(2, nodes.get("n2").children.get("y").value);
+    }
+
+    @Test
+    @DisplayName("Building with collected errors throws all of them at once")
+    void build_reports_every_error() {
+        ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder().collectErrors(true);
+        BeanTreeException e =
+                Assertions.assertThrows(BeanTreeException.class, () -> builder.build(Root.class, entry()));
+        Assertions.assertEquals(5, e.getSuppressed().length);
+        Assertions.assertTrue(e.getMessage().contains("5 error(s)"));
+    }
+
+    @Test
+    @DisplayName("Without collecting errors, the first error stops the build")
+    void fails_fast_by_default() {
+        ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+        Assertions.assertThrows(BeanTreeException.class, () -> builder.buildTree(Root.class, entry()));
+        builder.pool(pool);
+        Assertions.assertThrows(BeanTreeException.class, () -> builder.buildTree(Root.class, entry()));
+    }
+
+    @Test
+    @DisplayName("Parallel builds report the same errors in the same order")
+    void parallel_errors() {
+        ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder().collectErrors(true);
+        List<Path> sequential = files(builder.buildTree(Root.class, entry()));
+        List<Path> parallel = files(builder.pool(pool).buildTree(Root.class, entry()));
+        Assertions.assertEquals(sequential, parallel);
+    }
+
+    @Test
+    @DisplayName("Parallel builds load the same tree")
+    void parallel_build() {
+        ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder().recordProvenance(true);
+        Path entry = Path.of("src", "test", "resources", "TreeDiffTest", "current", "entry.json");
+        ConfigurationTree<Tree> sequential = builder.buildTree(Tree.class, entry);
+        ConfigurationTree<Tree> parallel = builder.pool(pool).buildTree(Tree.class, entry);
+
+        Assertions.assertEquals(
+                sequential.root().beans.keySet(), parallel.root().beans.keySet());
+        Assertions.assertTrue(sequential
+                .provenance(sequential.root())
+                .orElseThrow()
+                .sameContent(parallel.provenance(parallel.root()).orElseThrow()));
+    }
+
+    public static class Root {
+        String name;
+
+        @Bean("child")
+        Child child;
+
+        @BeanCollection("conf.d")
+        Map<String, Child> children;
+
+        @BeanCollection(value = "item", mapping = Mapping.MULTI_DIRS)
+        List<Node> nodes;
+    }
+
+    public static class Child {
+        int value;
+    }
+
+    public static class Node {
+        @Name
+        String name;
+
+        String label;
+
+        @BeanCollection("conf.d")
+        Map<String, Child> children;
+    }
+}
@@ -22,25 +22,37 @@
 package net.hunterstrategy.beantree;
 
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.toml.TomlMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.hunterstrategy.beantree.FileBeans.EmptyFile;
 import net.hunterstrategy.beantree.FileBeans.ParentBean;
 import net.hunterstrategy.beantree.FileBeans.ParentBeanNoExtension;
 import net.hunterstrategy.beantree.FileBeans.ParentWithGrandChild;
+import net.hunterstrategy.beantree.FileBeans.SharedChildren;
 import net.hunterstrategy.beantree.InvalidFileBeans.AbsoluteFile;
 import net.hunterstrategy.beantree.InvalidFileBeans.BadOverride;
 import net.hunterstrategy.beantree.InvalidFileBeans.CannotDeserialize;
 import net.hunterstrategy.beantree.InvalidFileBeans.CycleBean;
 import net.hunterstrategy.beantree.InvalidFileBeans.IgnoreDirs;
 import net.hunterstrategy.beantree.InvalidFileBeans.InterfaceOkayWithSpecification;
+import net.hunterstrategy.beantree.InvalidFileBeans.LinkCycleBean;
 import net.hunterstrategy.beantree.InvalidFileBeans.MissingFile;
 import net.hunterstrategy.beantree.InvalidFileBeans.RelativeFile;
 import net.hunterstrategy.beantree.analysis.BeanTreeException;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.io.TempDir;
 
 @DisplayName("Integration test: Bean (sibling files)")
 public class FileBeanTest implements FunctionalTestSupport {
@@ -194,4 +206,71 @@ public class FileBeanTest implements FunctionalTestSupport {
         Assertions.assertTrue(t.getMessage().contains("cycle detected!"), t.getMessage());
         Assertions.assertEquals(2, t.getSuppressed().length);
     }
+
+    private static void link(Path link, Path target) {
+        try {
+            Files.createSymbolicLink(link, target);
+        } catch (IOException | UnsupportedOperationException e) {
+            Assumptions.abort("Symbolic links are not supported: " + e);
+        }
+    }
+
+    @Test
+    @DisplayName("Cycles through symbolic links are detected")
+    void cycle_through_link(@TempDir Path dir) throws IOException {
+        Path root = Files.writeString(dir.resolve("root.json"), "{}");
+        link(dir.resolve("loop"), dir);
+        Throwable t = Assertions.assertThrows(BeanTreeException.class, () -> builder.build(LinkCycleBean.class, root));
+        Assertions.assertTrue(t.getMessage().contains("cycle detected!"), t.getMessage());
+    }
+
+    /**
+     * Counts the parsers created by a mapper, one per file read.
+     */
+    static class CountingFactory extends JsonFactory {
+        private static final long serialVersionUID = 1L;
+        final transient AtomicInteger parsed = new AtomicInteger();
+
+        @Override
+        public JsonParser createParser(InputStream in) throws IOException {
+            parsed.incrementAndGet();
+            return super.createParser(in);
+        }
+
+        @Override
+        public JsonParser createParser(byte[] data) throws IOException {
+            parsed.incrementAndGet();
+            return super.createParser(data);
+        }
+    }
+
+    private SharedChildren buildShared(Path dir, boolean once, CountingFactory factory) {
+        return new ConfigurationTreeBuilder()
+                .mapper(new ObjectMapper(factory))
+                .defaultMapperVisibilitySettings()
+                .parseOnce(once)
+                .build(SharedChildren.class, dir.resolve("parent.json"));
+    }
+
+    @Test
+    @DisplayName("Files loaded from several places can be parsed once")
+    void parse_once(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("parent.json"), "{}");
+        Path shared =
+                Files.writeString(dir.resolve("shared.json"), "{\"childFoo\": \"shared\"}", StandardCharsets.UTF_8);
+        Files.copy(shared, dir.resolve("one.json"));
+        link(dir.resolve("two.json"), dir.resolve("one.json"));
+
+        CountingFactory every = new CountingFactory();
+        buildShared(dir, false, every);
+        Assertions.assertEquals(3, every.parsed.get());
+
+        CountingFactory once = new CountingFactory();
+        SharedChildren bean = buildShared(dir, true, once);
+        Assertions.assertEquals(2, once.parsed.get());
+        Assertions.assertNotSame(bean.one, bean.two);
+        Assertions.assertEquals("one", bean.one.beanName);
+        Assertions.assertEquals("two", bean.two.beanName);
+        Assertions.assertEquals("shared", bean.two.childFoo);
+    }
 }
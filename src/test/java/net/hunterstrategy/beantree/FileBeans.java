@@ -69,4 +69,12 @@ public final class FileBeans {
         @Bean
         ChildBean child;
     }
+
+    public static class SharedChildren {
+        @Bean("one")
+        ChildBean one;
+
+        @Bean("two")
+        ChildBean two;
+    }
 }
@@ -0,0 +1,95 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.toml.TomlMapper;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: mixed file formats")
+public class FormatTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder()
+            .mapper(new TomlMapper())
+            .defaultMapperVisibilitySettings()
+            .defaultExtension("toml")
+            .format("json", new ObjectMapper().setVisibility(PropertyAccessor.FIELD, Visibility.ANY));
+
+    private Path entry() {
+        return resource("mixed", "entry.toml");
+    }
+
+    @Test
+    @DisplayName("Beans are found with any registered extension")
+    void bean_extensions() {
+        Mixed mixed = builder.build(Mixed.class, entry());
+        Assertions.assertEquals("entry", mixed.name);
+        Assertions.assertEquals("json_child", mixed.child.childFoo);
+    }
+
+    @Test
+    @DisplayName("Collections load every format, preferring the default for duplicates")
+    void collection_extensions() {
+        Mixed mixed = builder.build(Mixed.class, entry());
+        Assertions.assertEquals(Set.of("foo", "bar", "both"), mixed.beans.keySet());
+        Assertions.assertEquals("foo_toml", mixed.beans.get("foo").childFoo);
+        Assertions.assertEquals("bar_json", mixed.beans.get("bar").childFoo);
+        Assertions.assertEquals("both_toml", mixed.beans.get("both").childFoo);
+    }
+
+    @Test
+    @DisplayName("Files with unregistered extensions are read in the format of their content")
+    void sniffed_format() {
+        Mixed mixed = builder.build(Mixed.class, entry());
+        Assertions.assertEquals("sniffed", mixed.sniffed.childFoo);
+        Assertions.assertEquals(2, mixed.sniffed.childBar);
+    }
+
+    @Test
+    @DisplayName("Formats share the string pool of the build")
+    void pooled_formats() {
+        Mixed mixed = builder.deduplicateStrings(true).build(Mixed.class, entry());
+        Assertions.assertEquals("bar_json", mixed.beans.get("bar").childFoo);
+        Assertions.assertEquals("json_child", mixed.child.childFoo);
+    }
+
+    public static class Mixed {
+        String name;
+
+        @Bean
+        ChildBean child;
+
+        @Bean("sniffed.conf")
+        ChildBean sniffed;
+
+        @BeanCollection("conf.d")
+        Map<String, ChildBean> beans;
+    }
+}
@@ -0,0 +1,121 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import net.hunterstrategy.beantree.DirBeans.BasicDir;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: freezing collections")
+public class FreezeTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    private Path entry() {
+        return resource("collections", "entry.json");
+    }
+
+    @Test
+    @DisplayName("Collections are immutable once frozen")
+    void frozen_collections() {
+        Frozen frozen = builder.freeze(true).build(Frozen.class, entry());
+        ChildBean bean = new ChildBean();
+
+        Assertions.assertEquals(3, frozen.map.size());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.map.put("d", bean));
+        Assertions.assertEquals(3, frozen.set.size());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.set.add(bean));
+        Assertions.assertEquals(3, frozen.getList().size());
+        Assertions.assertThrows(
+                UnsupportedOperationException.class, () -> frozen.getList().add(bean));
+
+        // no immutable queue, or immutable HashMap
+        Assertions.assertEquals(3, frozen.queue.size());
+        Assertions.assertTrue(frozen.queue instanceof ArrayDeque);
+        Assertions.assertEquals(3, frozen.concrete.size());
+
+        // nested beans are frozen too
+        Assertions.assertEquals("nested", frozen.nested.name);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.nested.beans.clear());
+    }
+
+    @Test
+    @DisplayName("Collections are mutable unless frozen")
+    void unfrozen_collections() {
+        Frozen unfrozen = builder.build(Frozen.class, entry());
+        unfrozen.map.put("d", new ChildBean());
+        unfrozen.getList().add(new ChildBean());
+        Assertions.assertEquals(4, unfrozen.map.size());
+    }
+
+    @Test
+    @DisplayName("Ordered collections keep their order")
+    void ordered_collections() {
+        builder.factory(Map.class, LinkedHashMap::new);
+        List<String> keys =
+                new ArrayList<>(builder.build(Frozen.class, entry()).map.keySet());
+        Frozen frozen = builder.freeze(true).build(Frozen.class, entry());
+        Assertions.assertEquals(keys, new ArrayList<>(frozen.map.keySet()));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.map.remove("a"));
+    }
+
+    public static class Frozen {
+        String name;
+
+        @BeanCollection("conf.d")
+        Map<String, ChildBean> map;
+
+        @BeanCollection(value = "conf.d", type = ChildBean.class)
+        Set<ChildBean> set;
+
+        @BeanCollection(value = "conf.d", type = ChildBean.class)
+        Queue<ChildBean> queue;
+
+        @BeanCollection("conf.d")
+        HashMap<String, ChildBean> concrete;
+
+        @Bean("nested")
+        BasicDir nested;
+
+        private List<ChildBean> list;
+
+        public List<ChildBean> getList() {
+            return list;
+        }
+
+        @BeanCollection(value = "conf.d", type = ChildBean.class)
+        public void setList(List<ChildBean> list) {
+            this.list = list;
+        }
+    }
+}
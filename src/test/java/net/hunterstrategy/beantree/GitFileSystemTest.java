@@ -0,0 +1,173 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import net.hunterstrategy.beantree.git.GitFileSystems;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Integration test: git file systems")
+public class GitFileSystemTest {
+    @TempDir
+    Path workTree;
+
+    Git git;
+    RevCommit first;
+    RevCommit second;
+
+    private void write(String file, String content) throws IOException {
+        Path p = workTree.resolve(file);
+        Files.createDirectories(p.getParent());
+        Files.writeString(p, content, StandardCharsets.UTF_8);
+    }
+
+    private RevCommit commit(String message) throws Exception {
+        git.add().addFilepattern(".").call();
+        return git.commit()
+                .setMessage(message)
+                .setAuthor("test", "test@example.com")
+                .setCommitter("test", "test@example.com")
+                .setSign(false)
+                .call();
+    }
+
+    @BeforeEach
+    void createRepository() throws Exception {
+        git = Git.init().setDirectory(workTree.toFile()).call();
+        write("entry.json", "{\"name\": \"entry\"}");
+        write("conf.d/foo.json", "{\"value\": 1}");
+        write("conf.d/bar.json", "{\"value\": 2}");
+        first = commit("first");
+        write("conf.d/foo.json", "{\"value\": 10}");
+        second = commit("second");
+        git.close();
+    }
+
+    private Path gitDir() {
+        return workTree.resolve(".git");
+    }
+
+    @Test
+    @DisplayName("Build a tree from a commit")
+    void build_from_commit() throws IOException {
+        ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+        try (FileSystem fs = GitFileSystems.open(gitDir(), first.getName())) {
+            Root root = builder.build(Root.class, fs.getPath("/entry.json"));
+            Assertions.assertEquals("entry", root.name);
+            Assertions.assertEquals(2, root.entries.size());
+            Assertions.assertEquals(1, root.entries.get("foo").value);
+            Assertions.assertEquals("foo", root.entries.get("foo").name);
+            Assertions.assertEquals(2, root.entries.get("bar").value);
+        }
+        try (FileSystem fs = GitFileSystems.open(gitDir(), "HEAD")) {
+            Root root = builder.build(Root.class, fs.getPath("/entry.json"));
+            Assertions.assertEquals(10, root.entries.get("foo").value);
+        }
+    }
+
+    @Test
+    @DisplayName("Consecutive commits only parse the blobs that changed")
+    void parse_cache_by_object_id() throws IOException {
+        ParseCache cache = ParseCache.byFileKey();
+        ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder().parseCache(cache);
+        try (FileSystem fs = GitFileSystems.open(gitDir(), first.getName())) {
+            builder.build(Root.class, fs.getPath("/entry.json"));
+        }
+        Assertions.assertEquals(3, cache.misses());
+        Assertions.assertEquals(0, cache.hits());
+
+        cache.evictUnused();
+        try (FileSystem fs = GitFileSystems.open(gitDir(), second.getName())) {
+            Root root = builder.build(Root.class, fs.getPath("/entry.json"));
+            Assertions.assertEquals(10, root.entries.get("foo").value);
+            Assertions.assertEquals(2, root.entries.get("bar").value);
+        }
+        Assertions.assertEquals(4, cache.misses());
+        Assertions.assertEquals(2, cache.hits());
+
+        // the first version of foo.json was not used by the second build
+        cache.evictUnused();
+        Assertions.assertEquals(3, cache.size());
+    }
+
+    @Test
+    @DisplayName("File system behaves like a read-only file system")
+    void file_system_operations() throws IOException {
+        try (FileSystem fs = GitFileSystems.open(gitDir(), "HEAD")) {
+            Path root = fs.getPath("/");
+            try (Stream<Path> walker = Files.walk(root)) {
+                List<String> files = walker.filter(Files::isRegularFile)
+                        .map(Path::toString)
+                        .sorted()
+                        .collect(Collectors.toList());
+                Assertions.assertEquals(List.of("/conf.d/bar.json", "/conf.d/foo.json", "/entry.json"), files);
+            }
+            Assertions.assertTrue(Files.isDirectory(fs.getPath("/conf.d")));
+            Assertions.assertFalse(Files.exists(fs.getPath("/missing.json")));
+            Assertions.assertTrue(fs.getPathMatcher("glob:/conf.d/*.json").matches(fs.getPath("/conf.d/foo.json")));
+            Assertions.assertFalse(fs.getPathMatcher("glob:/*.json").matches(fs.getPath("/conf.d/foo.json")));
+            Assertions.assertTrue(fs.getPathMatcher("glob:/**.{json,toml}").matches(fs.getPath("/conf.d/foo.json")));
+            Assertions.assertEquals(
+                    fs.getPath("conf.d/foo.json"),
+                    root.relativize(fs.getPath("/conf.d/./bar/../foo.json").normalize()));
+            Assertions.assertEquals("{\"name\": \"entry\"}", Files.readString(fs.getPath("/entry.json")));
+            Assertions.assertThrows(
+                    ReadOnlyFileSystemException.class, () -> Files.writeString(fs.getPath("/new.json"), "{}"));
+        }
+    }
+
+    @Test
+    @DisplayName("Unknown revisions are reported")
+    void unknown_revision() {
+        Assertions.assertThrows(IOException.class, () -> GitFileSystems.open(gitDir(), "no-such-branch"));
+    }
+
+    public static class Root {
+        String name;
+
+        @BeanCollection("conf.d")
+        Map<String, Entry> entries;
+    }
+
+    public static class Entry {
+        @Name
+        String name;
+
+        int value;
+    }
+}
@@ -0,0 +1,116 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: resource governor")
+public class GovernorTest implements FunctionalTestSupport {
+    ForkJoinPool pool = ResourceGovernor.lowPriorityPool(4);
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder().pool(pool);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private Path entry() {
+        return resource("tree", "entry.json");
+    }
+
+    private static void assertTree(Tree tree) {
+        Assertions.assertEquals("tree", tree.name);
+        Assertions.assertEquals("child", tree.child.childFoo);
+        Assertions.assertEquals(4, tree.beans.size());
+        tree.beans.forEach((name, bean) -> Assertions.assertEquals(name, bean.childFoo));
+    }
+
+    @Test
+    @DisplayName("A build holding one file at a time, with files larger than the byte budget, completes")
+    void tight_limits() {
+        builder.governor(new ResourceGovernor(1, 8, 0)).readAhead(2, pool);
+        assertTree(builder.build(Tree.class, entry()));
+    }
+
+    @Test
+    @DisplayName("Reads are held to the read rate")
+    void read_rate() throws IOException {
+        long bytes;
+        try (Stream<Path> files = Files.walk(entry().getParent())) {
+            bytes = files.filter(Files::isRegularFile)
+                    .mapToLong(f -> f.toFile().length())
+                    .sum();
+        }
+        long bytesPerSecond = bytes * 5; // at least 200ms to read every file once
+        long start = System.nanoTime();
+        assertTree(builder.governor(new ResourceGovernor(0, 0, bytesPerSecond)).build(Tree.class, entry()));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assertions.assertTrue(elapsed >= 150, "Read " + bytes + " bytes in " + elapsed + "ms");
+    }
+
+    @Test
+    @DisplayName("Low-priority pools run daemon threads at the lowest priority")
+    void low_priority_pool() {
+        Thread worker = pool.submit(Thread::currentThread).join();
+        Assertions.assertEquals(Thread.MIN_PRIORITY, worker.getPriority());
+        Assertions.assertTrue(worker.isDaemon());
+    }
+
+    @Test
+    @DisplayName("Limits cannot be negative")
+    void negative_limits() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ResourceGovernor(-1, 0, 0));
+    }
+
+    /**
+     * Opens every entry while its directory is being listed.
+     */
+    public static class OpenEveryEntry implements HeaderFilter {
+        @Override
+        public boolean accept(JsonParser parser) throws IOException {
+            return parser.nextToken() != null;
+        }
+    }
+
+    public static class Tree {
+        String name;
+
+        @Bean
+        ChildBean child;
+
+        @BeanCollection(value = "conf.d", filter = OpenEveryEntry.class)
+        Map<String, ChildBean> beans;
+    }
+}
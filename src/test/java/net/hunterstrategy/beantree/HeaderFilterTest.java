@@ -0,0 +1,107 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.util.Map;
+import java.util.Set;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: filtering collection entries")
+public class HeaderFilterTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    @Test
+    @DisplayName("Header filters skip entries before they are parsed")
+    void header_filter() {
+        Toggles toggles = builder.build(Toggles.class, resource("toggles", "entry.json"));
+        Assertions.assertEquals(Set.of("alpha", "charlie"), toggles.toggles.keySet());
+        Assertions.assertTrue(toggles.toggles.get("alpha").enabled);
+        Assertions.assertEquals(3, toggles.toggles.get("charlie").settings.get("size"));
+    }
+
+    @Test
+    @DisplayName("Entries whose headers cannot be read fail alone")
+    void malformed_header() {
+        ConfigurationTree<Toggles> tree =
+                builder.collectErrors(true).buildTree(Toggles.class, resource("malformed", "entry.json"));
+        Assertions.assertTrue(tree.root().toggles.keySet().containsAll(Set.of("alpha", "charlie")));
+        Assertions.assertEquals(1, tree.errors().size());
+        Assertions.assertEquals(
+                resource("malformed", "conf.d", "bravo.json"),
+                tree.errors().get(0).file());
+    }
+
+    @Test
+    @DisplayName("Include and exclude globs filter entries by name")
+    void name_filters() {
+        Named named = builder.build(Named.class, resource("toggles", "entry.json"));
+        Assertions.assertEquals(Set.of("alpha", "charlie"), named.toggles.keySet());
+    }
+
+    @Test
+    @DisplayName("Without filters, every entry is parsed")
+    void unfiltered() {
+        Assertions.assertThrows(
+                BeanTreeException.class, () -> builder.build(Unfiltered.class, resource("toggles", "entry.json")));
+    }
+
+    @Test
+    @DisplayName("Filters must be concrete classes")
+    void abstract_filter() {
+        Assertions.assertThrows(
+                BeanTreeException.class, () -> builder.build(AbstractFilter.class, resource("toggles", "entry.json")));
+    }
+
+    public static class Toggle {
+        @Name
+        String name;
+
+        boolean enabled = true;
+        Map<String, Object> settings;
+    }
+
+    public static class Toggles {
+        @BeanCollection(value = "conf.d", exclude = "*.disabled", filter = HeaderFilter.Enabled.class)
+        Map<String, Toggle> toggles;
+    }
+
+    public static class Named {
+        @BeanCollection(value = "conf.d", include = "{alpha,charlie,delta*}", exclude = "*.disabled")
+        Map<String, Toggle> toggles;
+    }
+
+    public static class Unfiltered {
+        @BeanCollection("conf.d")
+        Map<String, Toggle> toggles;
+    }
+
+    public abstract static class Skeptic implements HeaderFilter {}
+
+    public static class AbstractFilter {
+        @BeanCollection(value = "conf.d", filter = Skeptic.class)
+        Map<String, Toggle> toggles;
+    }
+}
@@ -0,0 +1,128 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: collection indexes")
+public class IndexTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    @Test
+    @DisplayName("Unique index finds entries by key")
+    void unique_index() {
+        Hosts hosts = builder.build(Hosts.class, resource("hosts", "entry.json"));
+        Assertions.assertEquals(3, hosts.byAddress.size());
+        Assertions.assertTrue(hosts.byAddress.isUnique());
+        Assertions.assertSame(
+                hosts.hosts.get("bravo"), hosts.byAddress.find("10.0.0.2").get());
+        Assertions.assertTrue(hosts.byAddress.find("10.0.0.9").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Multi-valued index groups entries by key, leaving out null keys")
+    void multi_valued_index() {
+        Hosts hosts = builder.build(Hosts.class, resource("hosts", "entry.json"));
+        Assertions.assertEquals(3, hosts.byRole.size());
+        List<String> web =
+                hosts.byRole.findAll("web").stream().map(h -> h.name).sorted().collect(Collectors.toList());
+        Assertions.assertEquals(List.of("alpha", "bravo"), web);
+        Assertions.assertEquals(1, hosts.byRole.findAll("cache").size());
+        Assertions.assertTrue(hosts.byRole.findAll("mail").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Indexes are built the same on a pool")
+    void pooled_index() {
+        Hosts hosts = builder.pool(ForkJoinPool.commonPool()).build(Hosts.class, resource("hosts", "entry.json"));
+        Assertions.assertSame(
+                hosts.hosts.get("charlie"), hosts.byAddress.find("10.0.0.3").get());
+        Assertions.assertEquals(2, hosts.byRole.findAll("web").size());
+    }
+
+    @Test
+    @DisplayName("Duplicate keys in a unique index fail")
+    void duplicate_unique_key() {
+        BeanTreeException e = Assertions.assertThrows(
+                BeanTreeException.class, () -> builder.build(Hosts.class, resource("duplicate", "entry.json")));
+        Assertions.assertTrue(e.getMessage().contains("duplicate address: 10.0.0.1"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Indexed properties must exist on the entry type")
+    void missing_property() {
+        Assertions.assertThrows(
+                BeanTreeException.class, () -> builder.build(MissingProperty.class, resource("hosts", "entry.json")));
+    }
+
+    @Test
+    @DisplayName("Indexed members must name a declared index")
+    void missing_index() {
+        Assertions.assertThrows(
+                BeanTreeException.class, () -> builder.build(MissingIndex.class, resource("hosts", "entry.json")));
+    }
+
+    public static class Host {
+        @Name
+        String name;
+
+        String address;
+        String role;
+    }
+
+    public static class Hosts {
+        @BeanCollection(
+                value = "hosts.d",
+                indexes = {
+                    @Index(name = "address", property = "address", unique = true),
+                    @Index(name = "role", property = "role")
+                })
+        Map<String, Host> hosts;
+
+        @Indexed("address")
+        BeanIndex<Host> byAddress;
+
+        @Indexed("role")
+        BeanIndex<Host> byRole;
+    }
+
+    public static class MissingProperty {
+        @BeanCollection(value = "hosts.d", indexes = @Index(name = "zone", property = "zone"))
+        Map<String, Host> hosts;
+    }
+
+    public static class MissingIndex {
+        @BeanCollection("hosts.d")
+        Map<String, Host> hosts;
+
+        @Indexed("address")
+        BeanIndex<Host> byAddress;
+    }
+}
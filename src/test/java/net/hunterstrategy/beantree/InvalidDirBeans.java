@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import net.hunterstrategy.beantree.BeanCollection.Mapping;
 import net.hunterstrategy.beantree.FileBeans.ChildBean;
 
 public final class InvalidDirBeans {
@@ -63,6 +64,13 @@ public final class InvalidDirBeans {
         Map<String, ChildBean> map;
     }
 
+    public static class ZeroDepth {
+        String name;
+
+        @BeanCollection(value = "conf.d", mapping = Mapping.RECURSIVE, depth = 0)
+        Map<String, ChildBean> map;
+    }
+
     public static class IsAbsolute {
         String name;
 
@@ -99,6 +107,20 @@ public final class InvalidDirBeans {
         List<ChildBean> beans;
     }
 
+    public static class ToArray {
+        String name;
+
+        @BeanCollection("conf.d")
+        ChildBean[] beans;
+    }
+
+    public static class ArrayTypeMismatch {
+        String name;
+
+        @BeanCollection(value = "conf.d", type = ChildBean.class)
+        String[] beans;
+    }
+
     public static class ToSet {
         String name;
 
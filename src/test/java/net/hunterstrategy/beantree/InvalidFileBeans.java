@@ -33,6 +33,11 @@ public final class InvalidFileBeans {
         CycleBean cycle;
     }
 
+    public static class LinkCycleBean {
+        @Bean("loop/root")
+        LinkCycleBean next;
+    }
+
     public static class AbsoluteFile {
         @Bean("/tmp/foo.json")
         ChildBean bean;
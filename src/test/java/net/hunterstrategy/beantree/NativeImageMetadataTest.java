@@ -0,0 +1,136 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import net.hunterstrategy.beantree.BeanCollection.Mapping;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import net.hunterstrategy.beantree.processor.BeanCollectionProcessor;
+import net.hunterstrategy.beantree.processor.BeanProcessor;
+import net.hunterstrategy.beantree.processor.NameProcessor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Integration test: native-image metadata")
+public class NativeImageMetadataTest {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    @TempDir
+    Path temp;
+
+    @Test
+    @DisplayName("Bean types, bound types, and processors are registered for reflection")
+    void reflected_types() {
+        NativeImageMetadata metadata = builder.nativeImageMetadata(Root.class);
+        for (Class<?> type : List.of(
+                Root.class,
+                Plugin.class,
+                Base.class,
+                Settings.class,
+                Rule.class,
+                ChildBean.class,
+                BeanProcessor.class,
+                BeanCollectionProcessor.class,
+                NameProcessor.class,
+                HeaderFilter.Enabled.class,
+                BeanCollection.class)) {
+            Assertions.assertTrue(metadata.types().contains(type.getName()), type.getName());
+        }
+        Assertions.assertTrue(metadata.types().contains(Deferred.class.getName() + "$Deserializer"));
+        Assertions.assertFalse(metadata.types().contains(String.class.getName()));
+    }
+
+    @Test
+    @DisplayName("Resource patterns match the files of the tree")
+    void resource_patterns() {
+        NativeImageMetadata metadata = builder.nativeImageMetadata(Root.class);
+        Assertions.assertTrue(matches(metadata, "config/child.json"));
+        Assertions.assertTrue(matches(metadata, "config/foo/plugin.json"));
+        Assertions.assertTrue(matches(metadata, "config/foo/conf.d/x.json"));
+        Assertions.assertFalse(matches(metadata, "config/foo/other.json"));
+    }
+
+    private boolean matches(NativeImageMetadata metadata, String resource) {
+        return metadata.resources().stream().anyMatch(p -> Pattern.matches(p, resource));
+    }
+
+    @Test
+    @DisplayName("Configuration files are written as native-image reads them")
+    void written_files() throws IOException {
+        builder.nativeImageMetadata(Root.class).write(temp);
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode reflect = mapper.readTree(temp.resolve("reflect-config.json").toFile());
+        Assertions.assertTrue(reflect.isArray());
+        JsonNode processor = null;
+        for (JsonNode entry : reflect) {
+            if (BeanProcessor.class.getName().equals(entry.path("name").asText())) {
+                processor = entry;
+            }
+        }
+        Assertions.assertNotNull(processor);
+        Assertions.assertEquals("<init>", processor.at("/methods/0/name").asText());
+
+        JsonNode resources =
+                mapper.readTree(temp.resolve("resource-config.json").toFile());
+        Assertions.assertTrue(resources.at("/resources/includes/0/pattern").isTextual());
+        Assertions.assertTrue(Files.size(temp.resolve("reflect-config.json")) > 0);
+    }
+
+    public static class Base {
+        @Name
+        String name;
+    }
+
+    public static class Rule {
+        String pattern;
+    }
+
+    public static class Settings {
+        List<Rule> rules;
+    }
+
+    public static class Plugin extends Base {
+        Settings settings;
+        Deferred<Map<String, Rule>> table;
+
+        @BeanCollection("conf.d")
+        Map<String, ChildBean> beans;
+    }
+
+    public static class Root {
+        @Bean
+        ChildBean child;
+
+        @BeanCollection(value = "plugin", mapping = Mapping.MULTI_DIRS, filter = HeaderFilter.Enabled.class)
+        Map<String, Plugin> plugins;
+    }
+}
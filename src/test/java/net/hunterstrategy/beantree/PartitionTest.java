@@ -0,0 +1,182 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.hunterstrategy.beantree.BeanCollection.Mapping;
+import net.hunterstrategy.beantree.analysis.BuildError;
+import net.hunterstrategy.beantree.bundle.BundleFileSystems;
+import net.hunterstrategy.beantree.bundle.BundlePacker;
+import net.hunterstrategy.beantree.bundle.PartitionPlan;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Integration test: partitioned builds")
+public class PartitionTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    @TempDir
+    Path temp;
+
+    private Path entry() {
+        return resource("tree", "entry.json");
+    }
+
+    private void assertTree(Root root) {
+        Assertions.assertEquals("root", root.name);
+        Assertions.assertEquals(Set.of("a", "b", "c", "d"), root.entries.keySet());
+        Assertions.assertEquals("a", root.entries.get("a").name);
+        Assertions.assertEquals(2, root.entries.get("a").level);
+        Assertions.assertEquals("east", root.entries.get("a").region);
+        Assertions.assertEquals(1, root.entries.get("b").level);
+        Assertions.assertEquals("west", root.entries.get("b").region);
+        Assertions.assertEquals(Set.of("p1", "p2"), root.plugins.keySet());
+        Assertions.assertEquals("north", root.plugins.get("p1").entries.get("x").region);
+    }
+
+    @Test
+    @DisplayName("Partitions split outermost entries, and are balanced by size")
+    void balanced_partitions() throws IOException {
+        PartitionPlan plan = PartitionPlan.of(builder.plan(Root.class), entry(), 3);
+        Assertions.assertEquals(3, plan.count());
+        long largest = Files.size(resource("tree", "conf.d", "d.json"));
+        Assertions.assertEquals(largest, plan.weight(plan.partitionOf("d")));
+        long total = 0;
+        for (int n = 0; n < plan.count(); n++) {
+            total += plan.weight(n);
+        }
+        Assertions.assertTrue(plan.weight(plan.partitionOf("p1")) < largest);
+        Assertions.assertTrue(total > largest);
+
+        Set<String> seen = new HashSet<>();
+        for (int n = 0; n < plan.count(); n++) {
+            Root part = builder.shard(plan.shard(n)).build(Root.class, entry());
+            Assertions.assertEquals("root", part.name);
+            part.entries.keySet().forEach(name -> Assertions.assertTrue(seen.add(name), name));
+            part.plugins.keySet().forEach(name -> Assertions.assertTrue(seen.add(name), name));
+        }
+        Assertions.assertEquals(Set.of("a", "b", "c", "d", "p1", "p2"), seen);
+    }
+
+    @Test
+    @DisplayName("Checking a partition reports the errors of its own entries only")
+    void partition_checks() throws IOException {
+        Path conf = Files.createDirectories(temp.resolve("conf.d"));
+        Path entry = Files.writeString(temp.resolve("entry.json"), "{ \"name\": \"root\", \"defaults\": {} }");
+        Files.writeString(conf.resolve("a.json"), "{ \"level\": 1 }");
+        Files.writeString(conf.resolve("b.json"), "{ \"level\": \"high\" }");
+        PartitionPlan plan = PartitionPlan.of(builder.plan(Root.class), entry, 2);
+        Assertions.assertNotEquals(plan.partitionOf("a"), plan.partitionOf("b"));
+
+        builder.collectErrors(true);
+        for (int n = 0; n < plan.count(); n++) {
+            List<BuildError> errors =
+                    builder.shard(plan.shard(n)).buildTree(Root.class, entry).errors();
+            Assertions.assertEquals(n == plan.partitionOf("b") ? 1 : 0, errors.size(), errors.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Partitions packed separately merge into the whole tree")
+    void merged_partitions() throws IOException {
+        AnalysisPlan analysis = builder.plan(Root.class);
+        Path planFile = temp.resolve("tree.partitions");
+        PartitionPlan.of(analysis, entry(), 2).write(planFile);
+
+        PartitionPlan plan = PartitionPlan.read(planFile);
+        List<Path> parts = new ArrayList<>();
+        for (int n = 0; n < plan.count(); n++) {
+            Path part = temp.resolve("tree-" + n + ".bundle");
+            List<String> packed =
+                    new BundlePacker(analysis).shard(plan.shard(n)).pack(entry(), part);
+            Assertions.assertEquals("entry.json", packed.get(0));
+            Assertions.assertTrue(packed.size() < 8);
+            parts.add(part);
+        }
+
+        try (FileSystem fs = BundleFileSystems.merge(parts)) {
+            assertTree(builder.build(Root.class, fs.getPath("/entry.json")));
+        }
+    }
+
+    @Test
+    @DisplayName("Bundles that disagree on a file are not merged")
+    void conflicting_partitions() throws IOException {
+        Path copy = temp.resolve("copy");
+        Files.createDirectories(copy);
+        Files.writeString(copy.resolve("entry.json"), "{ \"name\": \"other\" }");
+        AnalysisPlan analysis = builder.plan(Root.class);
+        Path one = temp.resolve("one.bundle");
+        Path other = temp.resolve("other.bundle");
+        new BundlePacker(analysis).pack(entry(), one);
+        new BundlePacker(analysis).pack(copy.resolve("entry.json"), other);
+        Assertions.assertThrows(IOException.class, () -> BundleFileSystems.merge(List.of(one, other)));
+    }
+
+    @Test
+    @DisplayName("Partition counts and plan files are checked")
+    void invalid_plans() throws IOException {
+        Assertions.assertThrows(
+                IllegalArgumentException.class, () -> PartitionPlan.of(builder.plan(Root.class), entry(), 0));
+        Assertions.assertThrows(IOException.class, () -> PartitionPlan.read(entry()));
+    }
+
+    public static class Entry {
+        @Name
+        String name;
+
+        int level;
+        String region;
+        String notes;
+    }
+
+    public static class Plugin {
+        int level;
+
+        @BeanCollection("conf.d")
+        Map<String, Entry> entries;
+    }
+
+    public static class Root {
+        String name;
+
+        @Template("entry")
+        Entry defaults;
+
+        @BeanCollection(value = "conf.d", template = "entry")
+        Map<String, Entry> entries;
+
+        @BeanCollection(value = "plugin", mapping = Mapping.MULTI_DIRS)
+        Map<String, Plugin> plugins;
+    }
+}
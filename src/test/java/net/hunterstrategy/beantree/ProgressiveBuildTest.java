@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import net.hunterstrategy.beantree.AnalysisPlan.Step;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import net.hunterstrategy.beantree.analysis.BeanTreeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: progressive builds")
+public class ProgressiveBuildTest implements FunctionalTestSupport {
+    static final CountDownLatch TAIL_RELEASED = new CountDownLatch(1);
+
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    private Path entry() {
+        return resource("service", "service.json");
+    }
+
+    @Test
+    @DisplayName("The root is ready once its high-priority members are loaded")
+    void ready_before_tail() throws Exception {
+        ProgressiveBuild<Service> build = builder.buildProgressively(Service.class, entry());
+        Service ready = build.ready().get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(8080, ready.port);
+        Assertions.assertEquals("listener", ready.listener.childFoo);
+        Assertions.assertFalse(build.completion().isDone());
+
+        TAIL_RELEASED.countDown();
+        Service root = build.root().get(10, TimeUnit.SECONDS);
+        Assertions.assertSame(ready, root);
+        Assertions.assertEquals("service", root.name);
+        Assertions.assertEquals(2, root.tail.size());
+        Assertions.assertEquals("b", root.tail.get("b").childFoo);
+    }
+
+    @Test
+    @DisplayName("Collections loaded before the root is ready are frozen before it is published")
+    void frozen_before_ready() {
+        ProgressiveBuild<Frozen> build = builder.freeze(true).buildProgressively(Frozen.class, entry());
+        Frozen ready = build.ready().join();
+        Map<String, TailBean> early = ready.early;
+        Assertions.assertEquals(2, early.size());
+        Assertions.assertThrows(UnsupportedOperationException.class, early::clear);
+
+        Frozen root = build.root().join();
+        Assertions.assertSame(early, root.early);
+        Assertions.assertThrows(UnsupportedOperationException.class, root.late::clear);
+    }
+
+    @Test
+    @DisplayName("Higher priorities are loaded first, whatever their index")
+    void priority_order() {
+        List<Step> steps = builder.plan(Service.class).steps(Service.class);
+        Assertions.assertEquals("listener", steps.get(0).member());
+        Assertions.assertEquals(1, steps.get(0).priority());
+        Assertions.assertTrue(
+                steps.get(0).toString().contains("priority=1"), steps.get(0).toString());
+        Assertions.assertEquals("tail", steps.get(1).member());
+    }
+
+    @Test
+    @DisplayName("A build that fails before it is ready fails both futures")
+    void failure_before_ready() {
+        ProgressiveBuild<Service> build =
+                builder.buildProgressively(Service.class, resource("service", "missing.json"));
+        CompletionException e = Assertions.assertThrows(
+                CompletionException.class, () -> build.ready().join());
+        Assertions.assertTrue(
+                e.getCause() instanceof BeanTreeException, e.getCause().toString());
+        Assertions.assertThrows(
+                CompletionException.class, () -> build.completion().join());
+    }
+
+    /**
+     * Holds back the entries of the tail until the test has seen the root ready.
+     */
+    public static class HoldTail implements HeaderFilter {
+        @Override
+        public boolean accept(JsonParser parser) throws IOException {
+            try {
+                return TAIL_RELEASED.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    public static class TailBean {
+        String childFoo;
+    }
+
+    public static class Frozen {
+        int port;
+
+        @BeanCollection(value = "conf.d", priority = 1)
+        Map<String, TailBean> early;
+
+        @BeanCollection("conf.d")
+        Map<String, TailBean> late;
+    }
+
+    public static class Service {
+        @Name
+        String name;
+
+        int port;
+
+        @BeanCollection(value = "conf.d", index = -1, filter = HoldTail.class)
+        Map<String, TailBean> tail;
+
+        @Bean(priority = 1)
+        ChildBean listener;
+    }
+}
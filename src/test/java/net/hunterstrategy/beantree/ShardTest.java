@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import net.hunterstrategy.beantree.BeanCollection.Mapping;
+import net.hunterstrategy.beantree.DirBeans.BasicDir;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: sharded collections")
+public class ShardTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    private Path entry() {
+        return resource("plugins", "entry.json");
+    }
+
+    @Test
+    @DisplayName("Shards split a collection between them")
+    void shards_partition_collection() {
+        Set<String> all = builder.build(Plugins.class, entry()).plugins.keySet();
+        Assertions.assertEquals(8, all.size());
+
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            Shard shard = Shard.of(i, 3);
+            Map<String, BasicDir> plugins = builder.shard(shard).build(Plugins.class, entry()).plugins;
+            for (String name : plugins.keySet()) {
+                Assertions.assertTrue(shard.owns(name));
+                Assertions.assertTrue(seen.add(name), name);
+            }
+        }
+        Assertions.assertEquals(all, seen);
+    }
+
+    @Test
+    @DisplayName("Collections nested in owned entries are loaded in full")
+    void nested_collections_are_not_sharded() {
+        Map<String, BasicDir> plugins = builder.shard(Shard.of(0, 2, name -> 0)).build(Plugins.class, entry()).plugins;
+        Assertions.assertEquals(8, plugins.size());
+        plugins.values().forEach(p -> Assertions.assertEquals(3, p.beans.size()));
+
+        plugins = builder.shard(Shard.of(1, 2, name -> 0)).build(Plugins.class, entry()).plugins;
+        Assertions.assertTrue(plugins.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Shard indexes must be within the shard count")
+    void invalid_shards() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Shard.of(3, 3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Shard.of(0, 0));
+        Assertions.assertThrows(NullPointerException.class, () -> Shard.of(0, 1, null));
+    }
+
+    public static class Plugins {
+        String name;
+
+        @BeanCollection(value = "plugin", mapping = Mapping.MULTI_DIRS, type = BasicDir.class)
+        Map<String, BasicDir> plugins;
+    }
+}
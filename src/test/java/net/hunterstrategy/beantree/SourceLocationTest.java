@@ -0,0 +1,95 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: compact source locations")
+public class SourceLocationTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    private Path entry() {
+        return resource("entries", "entry.json");
+    }
+
+    @Test
+    @DisplayName("Locations resolve to the source file")
+    void resolves_to_source_file() {
+        Located located = builder.build(Located.class, entry());
+        for (Entry e : located.beans.values()) {
+            Assertions.assertEquals(e.path, e.location.toPath());
+            Assertions.assertEquals(e.string, e.location.toString());
+        }
+        Assertions.assertEquals(entry(), located.location.toPath());
+        Assertions.assertEquals("entry.json", located.location.name());
+    }
+
+    @Test
+    @DisplayName("Locations share their directories")
+    void shared_prefixes() {
+        Located located = builder.build(Located.class, entry());
+        SourceLocation a = located.beans.get("a").location;
+        SourceLocation b = located.beans.get("b").location;
+
+        Assertions.assertNotSame(a, b);
+        Assertions.assertSame(a.parent(), b.parent());
+        Assertions.assertEquals("conf.d", a.parent().name());
+        Assertions.assertSame(located.location.parent(), a.parent().parent());
+    }
+
+    @Test
+    @DisplayName("Provenance resolves its source lazily")
+    void provenance_location() {
+        ConfigurationTree<Located> tree = builder.recordProvenance(true).buildTree(Located.class, entry());
+        Entry a = tree.root().beans.get("a");
+        Assertions.assertSame(a.location, tree.provenance(a).orElseThrow().location());
+        Assertions.assertEquals(a.path, tree.provenance(a).orElseThrow().source());
+    }
+
+    public static class Located {
+        String name;
+
+        @SourceFile
+        SourceLocation location;
+
+        @BeanCollection("conf.d")
+        Map<String, Entry> beans;
+    }
+
+    public static class Entry {
+        String childFoo;
+
+        @SourceFile
+        SourceLocation location;
+
+        @SourceFile
+        Path path;
+
+        @SourceFile
+        String string;
+    }
+}
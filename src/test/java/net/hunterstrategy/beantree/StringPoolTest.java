@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: string deduplication")
+public class StringPoolTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder();
+
+    private Path entry() {
+        return resource("entries", "entry.json");
+    }
+
+    @Test
+    @DisplayName("Equal strings in a tree share one instance")
+    void deduplicated() {
+        ConfigurationTree<Entries> tree = builder.deduplicateStrings(true).buildTree(Entries.class, entry());
+        Map<String, Entry> beans = tree.root().beans;
+        Entry a = beans.get("a");
+        Entry b = beans.get("b");
+
+        Assertions.assertSame(a.childFoo, b.childFoo);
+        Assertions.assertSame(a.tags.get(0), b.tags.get(0));
+        Assertions.assertSame(a.labels.get("env"), b.labels.get("env"));
+        Assertions.assertSame(
+                a.labels.keySet().iterator().next(),
+                b.labels.keySet().iterator().next());
+        beans.forEach((name, bean) -> Assertions.assertSame(name, bean.beanName));
+
+        Assertions.assertTrue(tree.stringHits() > 0);
+        Assertions.assertTrue(tree.stringBytesSaved() > 0);
+        Assertions.assertTrue(tree.stringPool().isEmpty(), "A pool made for the build is dropped");
+    }
+
+    @Test
+    @DisplayName("Strings are not deduplicated by default")
+    void not_deduplicated() {
+        ConfigurationTree<Entries> tree = builder.buildTree(Entries.class, entry());
+        Map<String, Entry> beans = tree.root().beans;
+
+        Assertions.assertEquals(beans.get("a").childFoo, beans.get("b").childFoo);
+        Assertions.assertNotSame(beans.get("a").childFoo, beans.get("b").childFoo);
+        Assertions.assertTrue(tree.stringPool().isEmpty());
+        Assertions.assertEquals(0, tree.stringHits());
+    }
+
+    @Test
+    @DisplayName("A shared pool deduplicates strings across builds")
+    void shared_pool() {
+        StringPool pool = new StringPool();
+        builder.stringPool(pool);
+        Entries first = builder.build(Entries.class, entry());
+        int size = pool.size();
+        ConfigurationTree<Entries> tree = builder.buildTree(Entries.class, entry());
+        Entries second = tree.root();
+
+        Assertions.assertNotSame(first, second);
+        Assertions.assertSame(first.beans.get("a").childFoo, second.beans.get("a").childFoo);
+        Assertions.assertSame(first.beans.get("a").source, second.beans.get("a").source);
+        Assertions.assertEquals(size, pool.size());
+        Assertions.assertSame(pool, tree.stringPool().orElseThrow());
+        Assertions.assertEquals(pool.hits(), tree.stringHits());
+        Assertions.assertEquals(40L * size, pool.overhead());
+    }
+
+    public static class Entries {
+        String name;
+
+        @BeanCollection("conf.d")
+        Map<String, Entry> beans;
+    }
+
+    public static class Entry {
+        @Name
+        String beanName;
+
+        @SourceFile
+        String source;
+
+        String childFoo;
+        Map<String, String> labels;
+        List<String> tags;
+    }
+}
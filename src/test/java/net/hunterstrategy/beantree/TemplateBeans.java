@@ -22,6 +22,9 @@
 package net.hunterstrategy.beantree;
 
 
+import java.util.List;
+import java.util.Map;
+import net.hunterstrategy.beantree.BeanCollection.Mapping;
 import net.hunterstrategy.beantree.FileBeans.ChildBean;
 
 public final class TemplateBeans {
@@ -57,4 +60,64 @@ public final class TemplateBeans {
         @Bean
         ChildBean bean;
     }
+
+    public static class Shared {
+        @Template("entry")
+        SharedEntry defaults;
+
+        @BeanCollection(value = "conf.d", template = "entry")
+        Map<String, SharedEntry> beans;
+    }
+
+    public static class SharedEntry {
+        String childFoo;
+        ChildBean nested;
+        List<String> tags;
+    }
+
+    public static class SharedInjected {
+        @Template("entry")
+        InjectedEntry defaults;
+
+        @BeanCollection(value = "entry", mapping = Mapping.MULTI_DIRS, template = "entry")
+        Map<String, InjectedEntry> beans;
+    }
+
+    public static class InjectedEntry {
+        String childFoo;
+
+        @Bean("child")
+        ChildBean child;
+    }
+
+    public static class Parallel {
+        @BeanCollection(value = "entry", mapping = Mapping.MULTI_DIRS)
+        Map<String, ParallelEntry> entries;
+    }
+
+    public static class ParallelEntry {
+        @Template("child")
+        ChildBean defaults;
+
+        @Bean(value = "child", template = "child")
+        ChildBean child;
+    }
+
+    public static class ParallelDeclared {
+        @BeanCollection(value = "entry", mapping = Mapping.MULTI_DIRS)
+        Map<String, DeclaringEntry> entries;
+
+        @Bean(value = "after", template = "declared", index = 1)
+        ChildBean after;
+    }
+
+    public static class DeclaringEntry {
+        @BeanCollection("templates.d")
+        Map<String, Declarer> declarers;
+    }
+
+    public static class Declarer {
+        @Template("declared")
+        ChildBean defaults;
+    }
 }
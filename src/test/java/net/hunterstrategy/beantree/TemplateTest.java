@@ -23,11 +23,18 @@ package net.hunterstrategy.beantree;
 
 
 import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 import net.hunterstrategy.beantree.InvalidTemplateBeans.MustSpecifyName;
 import net.hunterstrategy.beantree.InvalidTemplateBeans.RedeclaredTemplate;
 import net.hunterstrategy.beantree.TemplateBeans.Dependency;
 import net.hunterstrategy.beantree.TemplateBeans.External;
+import net.hunterstrategy.beantree.TemplateBeans.InjectedEntry;
 import net.hunterstrategy.beantree.TemplateBeans.Inline;
+import net.hunterstrategy.beantree.TemplateBeans.Parallel;
+import net.hunterstrategy.beantree.TemplateBeans.ParallelDeclared;
+import net.hunterstrategy.beantree.TemplateBeans.Shared;
+import net.hunterstrategy.beantree.TemplateBeans.SharedEntry;
+import net.hunterstrategy.beantree.TemplateBeans.SharedInjected;
 import net.hunterstrategy.beantree.analysis.BeanTreeException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -73,6 +80,80 @@ public class TemplateTest implements FunctionalTestSupport {
         Assertions.assertEquals(777, bean.bean.childBar);
     }
 
+    @Test
+    @DisplayName("Template content untouched by a file is shared when enabled")
+    void shared(TestInfo info) {
+        Path p = resource(info, "entry.json");
+        Shared bean = builder.shareTemplates(true).build(Shared.class, p);
+        SharedEntry a = bean.beans.get("a");
+        SharedEntry b = bean.beans.get("b");
+
+        Assertions.assertEquals("a_foo", a.childFoo);
+        Assertions.assertEquals("default_foo", b.childFoo);
+        Assertions.assertSame(bean.defaults.nested, a.nested);
+        Assertions.assertSame(bean.defaults.tags, a.tags);
+        Assertions.assertSame(bean.defaults.tags, b.tags);
+        Assertions.assertEquals("b_nested_foo", b.nested.childFoo);
+        Assertions.assertEquals("nested_foo", bean.defaults.nested.childFoo);
+    }
+
+    @Test
+    @DisplayName("Shared templates never share members that are injected")
+    void shared_injected(TestInfo info) {
+        Path p = resource(info, "entry.json");
+        SharedInjected bean = builder.shareTemplates(true).build(SharedInjected.class, p);
+        InjectedEntry a = bean.beans.get("a");
+        InjectedEntry b = bean.beans.get("b");
+
+        Assertions.assertEquals("a_foo", a.childFoo);
+        Assertions.assertEquals(1, a.child.childBar);
+        Assertions.assertEquals(2, b.child.childBar);
+        Assertions.assertEquals("template_child", b.child.childFoo);
+        Assertions.assertNotSame(a.child, b.child);
+        Assertions.assertNotSame(bean.defaults.child, a.child);
+        Assertions.assertEquals(0, bean.defaults.child.childBar);
+    }
+
+    @Test
+    @DisplayName("Entries loaded in parallel cannot declare the same template, as in sequential builds")
+    void parallel_entries(TestInfo info) {
+        Path p = resource(info, "entry.json");
+        Throwable sequential = Assertions.assertThrows(BeanTreeException.class, () -> builder.build(Parallel.class, p));
+        Assertions.assertTrue(
+                sequential.getMessage().contains("Template has already been defined: child"), sequential.getMessage());
+        for (int n = 0; n < 10; n++) {
+            Throwable parallel =
+                    Assertions.assertThrows(BeanTreeException.class, () -> builder.pool(ForkJoinPool.commonPool())
+                            .build(Parallel.class, p));
+            Assertions.assertTrue(
+                    parallel.getMessage().contains("Template has already been defined: child"), parallel.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("Templates declared by entries loaded in parallel are visible after the collection")
+    void parallel_declared(TestInfo info) {
+        Path p = resource(info, "entry.json");
+        for (int n = 0; n < 10; n++) {
+            ParallelDeclared bean = builder.pool(ForkJoinPool.commonPool()).build(ParallelDeclared.class, p);
+            Assertions.assertEquals(2, bean.entries.size());
+            Assertions.assertEquals("declared", bean.after.childFoo);
+            Assertions.assertEquals(3, bean.after.childBar);
+        }
+    }
+
+    @Test
+    @DisplayName("Template content is copied by default")
+    void copied() {
+        Path p = resource("shared", "entry.json");
+        Shared bean = builder.build(Shared.class, p);
+        SharedEntry a = bean.beans.get("a");
+
+        Assertions.assertEquals(bean.defaults.tags, a.tags);
+        Assertions.assertNotSame(bean.defaults.tags, a.tags);
+        Assertions.assertNotSame(bean.defaults.nested, a.nested);
+    }
+
     @Test
     @DisplayName("Cannot re-declare the same template")
     void duplicate_names() {
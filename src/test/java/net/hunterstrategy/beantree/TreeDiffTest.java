@@ -0,0 +1,120 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree;
+
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import net.hunterstrategy.beantree.Change.Kind;
+import net.hunterstrategy.beantree.DirBeans.BasicDirFileTemplate;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Integration test: comparing configuration trees")
+public class TreeDiffTest implements FunctionalTestSupport {
+    ConfigurationTreeBuilder builder = new ConfigurationTreeBuilder().recordProvenance(true);
+
+    private <T> List<String> diff(Class<T> type, String before, String after) {
+        ConfigurationTree<T> previous = builder.buildTree(type, resource(before, "entry.json"));
+        ConfigurationTree<T> current = builder.buildTree(type, resource(after, "entry.json"));
+        return builder.diff(previous, current)
+                .map(c -> c.kind() + " " + c.pointer())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Added, removed, and modified beans are reported")
+    void changes() {
+        List<String> expected =
+                Arrays.asList("MODIFIED ", "REMOVED /beans/bar", "ADDED /beans/baz", "MODIFIED /beans/foo");
+        Assertions.assertEquals(expected, diff(Tree.class, "previous", "current"));
+    }
+
+    @Test
+    @DisplayName("Changes report the files the beans were loaded from")
+    void change_sources() {
+        ConfigurationTree<Tree> previous = builder.buildTree(Tree.class, resource("previous", "entry.json"));
+        ConfigurationTree<Tree> current = builder.buildTree(Tree.class, resource("current", "entry.json"));
+        Map<String, Change> changes = builder.diff(previous, current)
+                .collect(Collectors.toMap(c -> c.pointer().toString(), c -> c));
+
+        Assertions.assertEquals(
+                resource("previous", "conf.d", "bar.json"),
+                changes.get("/beans/bar").source());
+        Assertions.assertNull(changes.get("/beans/bar").currentSource());
+        Assertions.assertEquals(
+                resource("current", "conf.d", "baz.json"),
+                changes.get("/beans/baz").source());
+        Assertions.assertNull(changes.get("/beans/baz").previousSource());
+        Assertions.assertEquals(Kind.MODIFIED, changes.get("/beans/foo").kind());
+        Assertions.assertEquals(
+                resource("current", "conf.d", "foo.json"),
+                changes.get("/beans/foo").source());
+    }
+
+    @Test
+    @DisplayName("Identical trees have no changes, and identical digests")
+    void identical() {
+        Assertions.assertEquals(0, diff(Tree.class, "previous", "previous").size());
+
+        ConfigurationTree<Tree> previous = builder.buildTree(Tree.class, resource("previous", "entry.json"));
+        ConfigurationTree<Tree> current = builder.buildTree(Tree.class, resource("current", "entry.json"));
+        Assertions.assertTrue(previous.provenance(previous.root().child)
+                .get()
+                .sameContent(current.provenance(current.root().child).get()));
+        Assertions.assertFalse(previous.provenance(previous.root())
+                .get()
+                .sameContent(current.provenance(current.root()).get()));
+    }
+
+    @Test
+    @DisplayName("Template changes are reported for beans whose own files did not change")
+    void template_changes() {
+        List<String> expected = Arrays.asList("MODIFIED /defaultChildBean", "MODIFIED /beans/bar");
+        Assertions.assertEquals(expected, diff(BasicDirFileTemplate.class, "template_previous", "template_current"));
+    }
+
+    @Test
+    @DisplayName("Trees must be built with provenance to be compared")
+    void requires_provenance() {
+        Path p = resource("previous", "entry.json");
+        ConfigurationTree<Tree> previous = builder.buildTree(Tree.class, p);
+        ConfigurationTree<Tree> current = builder.recordProvenance(false).buildTree(Tree.class, p);
+        Assertions.assertFalse(current.hasProvenance());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.diff(previous, current));
+    }
+
+    public static class Tree {
+        String name;
+
+        @Bean("child")
+        ChildBean child;
+
+        @BeanCollection("conf.d")
+        Map<String, ChildBean> beans;
+    }
+}
@@ -0,0 +1,120 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.analysis;
+
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import net.hunterstrategy.beantree.Bean;
+import net.hunterstrategy.beantree.FileBeans.ChildBean;
+import net.hunterstrategy.beantree.Name;
+import net.hunterstrategy.beantree.analysis.ConfigAnalyzerTest.TemplateDependencies;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Unit test: persisted analysis cache")
+public class ConfigAnalyzerCacheTest {
+    @TempDir
+    Path dir;
+
+    DeserializationContext context(ConfigAnalyzerCache cache) {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+        return new DeserializationContext(mapper, cache, ".json", new ConcurrentHashMap<>());
+    }
+
+    List<String> describe(List<Injector> injectors) {
+        return injectors.stream().map(i -> i.member() + " " + i.annotation()).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Saved results are loaded without analyzing again")
+    void save_and_load() throws IOException {
+        Path file = dir.resolve("analysis.json");
+        ConfigAnalyzerCache first = new ConfigAnalyzerCache();
+        List<Injector> dependencies = first.injectors(TemplateDependencies.class, context(first));
+        List<Injector> derived = first.injectors(Derived.class, context(first));
+        Assertions.assertTrue(first.save(file));
+        Assertions.assertFalse(first.save(file), "nothing new to save");
+
+        ConfigAnalyzerCache second = new ConfigAnalyzerCache();
+        Assertions.assertEquals(2, second.load(file));
+        DeserializationContext ctx = context(second);
+        Assertions.assertEquals(describe(dependencies), describe(second.injectors(TemplateDependencies.class, ctx)));
+        Assertions.assertEquals(describe(derived), describe(second.injectors(Derived.class, ctx)));
+        Assertions.assertFalse(second.save(file), "nothing was analyzed");
+
+        second.injectors(ChildBean.class, ctx);
+        Assertions.assertTrue(second.save(file));
+        Assertions.assertEquals(3, new ConfigAnalyzerCache().load(file));
+    }
+
+    @Test
+    @DisplayName("Results for changed classes are not used")
+    void out_of_date() throws IOException {
+        Path file = dir.resolve("analysis.json");
+        ConfigAnalyzerCache first = new ConfigAnalyzerCache();
+        first.injectors(Derived.class, context(first));
+        first.save(file);
+        String content = Files.readString(file);
+        String hash = AnalysisCacheFile.hash(Derived.class);
+        Files.writeString(file, content.replace(hash, "changed"));
+
+        ConfigAnalyzerCache second = new ConfigAnalyzerCache();
+        Assertions.assertEquals(1, second.load(file));
+        Assertions.assertEquals(
+                2, second.injectors(Derived.class, context(second)).size());
+        Assertions.assertTrue(second.save(file), "the class was analyzed again");
+    }
+
+    @Test
+    @DisplayName("Unreadable files are ignored")
+    void unreadable() throws IOException {
+        Path file = dir.resolve("analysis.json");
+        Files.writeString(file, "{ not json");
+        Assertions.assertEquals(0, new ConfigAnalyzerCache().load(file));
+        Assertions.assertEquals(0, new ConfigAnalyzerCache().load(dir.resolve("missing.json")));
+    }
+
+    public static class Base {
+        @Bean("base")
+        ChildBean base;
+    }
+
+    public static class Derived extends Base {
+        String name;
+
+        @Name
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
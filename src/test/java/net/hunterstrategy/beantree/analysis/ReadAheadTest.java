@@ -0,0 +1,124 @@
+/*-
+ * #%L
+ * Jackson Bean Tree
+ * %%
+ * Copyright (C) 2022 - 2023 Hunter Strategy LLC
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package net.hunterstrategy.beantree.analysis;
+
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import net.hunterstrategy.beantree.ResourceGovernor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Unit test: read-ahead within a resource governor")
+public class ReadAheadTest {
+    private static final int BUDGET = 100;
+
+    @TempDir
+    Path dir;
+
+    Path a;
+    Path b;
+    ResourceGovernor governor = new ResourceGovernor(0, BUDGET, 0);
+    // reads run as they are scheduled
+    ReadAhead readAhead = new ReadAhead(4, Runnable::run, governor);
+
+    @BeforeEach
+    void files() throws IOException {
+        a = Files.writeString(dir.resolve("a.json"), "{\"a\":1}");
+        b = Files.writeString(dir.resolve("b.json"), "{\"b\":2}");
+    }
+
+    private void assertAllBytesFree() {
+        int reserved = governor.tryReserveBytes(BUDGET);
+        Assertions.assertEquals(BUDGET, reserved);
+        governor.releaseBytes(reserved);
+    }
+
+    @Test
+    @DisplayName("Content read ahead counts against the byte limit until it is released")
+    void held_until_released() {
+        readAhead.schedule(List.of(a));
+        Assertions.assertEquals(-1, governor.tryReserveBytes(BUDGET));
+        ReadAhead.Buffer buffer = readAhead.take(a);
+        Assertions.assertNotNull(buffer);
+        Assertions.assertEquals(-1, governor.tryReserveBytes(BUDGET));
+        readAhead.release(buffer);
+        assertAllBytesFree();
+    }
+
+    @Test
+    @DisplayName("Files that do not fit within the byte limit are left for the parser")
+    void over_the_limit() {
+        int reserved = governor.tryReserveBytes(BUDGET);
+        readAhead.schedule(List.of(a));
+        Assertions.assertNull(readAhead.take(a));
+        governor.releaseBytes(reserved);
+
+        readAhead.schedule(List.of(b));
+        ReadAhead.Buffer buffer = readAhead.take(b);
+        Assertions.assertNotNull(buffer);
+        readAhead.release(buffer);
+        assertAllBytesFree();
+    }
+
+    @Test
+    @DisplayName("Pausing gives back content that has not been taken")
+    void pause_gives_back() {
+        readAhead.schedule(List.of(a));
+        readAhead.pause();
+        assertAllBytesFree();
+        Assertions.assertNull(readAhead.take(a));
+
+        readAhead.schedule(List.of(b));
+        Assertions.assertNull(readAhead.take(b));
+        readAhead.resume();
+        assertAllBytesFree();
+    }
+
+    @Test
+    @DisplayName("Closing gives back content that has not been taken")
+    void close_gives_back() {
+        readAhead.schedule(List.of(a, b));
+        readAhead.close();
+        assertAllBytesFree();
+    }
+
+    @Test
+    @DisplayName("Reading ahead on threads of its own stops them when closed")
+    void own_threads() {
+        ReadAhead own = ReadAhead.withOwnThreads(2, 1, null);
+        own.schedule(List.of(a));
+        ReadAhead.Buffer buffer = own.take(a);
+        Assertions.assertNotNull(buffer);
+        Assertions.assertEquals("{\"a\":1}", new String(buffer.data, 0, buffer.length, StandardCharsets.UTF_8));
+        own.release(buffer);
+        own.close();
+        own.schedule(List.of(b));
+        Assertions.assertNull(own.take(b));
+    }
+}